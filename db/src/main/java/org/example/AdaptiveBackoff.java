@@ -0,0 +1,39 @@
+package org.example;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delay shared by all writers of a bulk load. Every throttled call doubles it and every clean call
+ * shrinks it by a quarter, so the writers settle close to the rate the table can absorb.
+ */
+class AdaptiveBackoff {
+
+    private static final long MIN_DELAY_MILLIS = 10;
+    private static final long MAX_DELAY_MILLIS = 5_000;
+
+    private final AtomicLong delayMillis = new AtomicLong();
+
+    void onThrottle() {
+        delayMillis.updateAndGet(delay -> Math.min(MAX_DELAY_MILLIS, Math.max(MIN_DELAY_MILLIS, delay * 2)));
+    }
+
+    void onSuccess() {
+        delayMillis.updateAndGet(delay -> delay <= MIN_DELAY_MILLIS ? 0 : delay * 3 / 4);
+    }
+
+    /**
+     * Sleeps for the current delay with equal jitter, so writers that were throttled together
+     * do not retry together.
+     */
+    void pause() throws InterruptedException {
+        long delay = delayMillis.get();
+        if (delay > 0) {
+            Thread.sleep(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+        }
+    }
+
+    long currentDelayMillis() {
+        return delayMillis.get();
+    }
+}
@@ -1,5 +1,6 @@
 package org.example;
 
+import org.example.dynamodb.DynamoDbClientFactory;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
@@ -9,9 +10,14 @@ import java.util.Map;
 import java.util.UUID;
 
 public class App {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            // bulk import from a CSV/JSONL file instead of the built-in sample data
+            BulkLoader.main(args);
+            return;
+        }
 
-        DynamoDbClient dynamoDb = DynamoDbClient.create();
+        DynamoDbClient dynamoDb = DynamoDbClientFactory.fromEnv().createClient();
 
         String productsTable = "products";
         String stocksTable = "stocks";
@@ -59,6 +65,7 @@ public class App {
         product.put("title", AttributeValue.builder().s(title).build());
         product.put("description", AttributeValue.builder().s(description).build());
         product.put("price", AttributeValue.builder().n(String.valueOf(price)).build());
+        IndexKeys.addTo(product, title, price);
         return product;
     }
 
@@ -0,0 +1,239 @@
+package org.example;
+
+import org.example.dynamodb.DynamoDbClientFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads a product catalog from a CSV or JSONL file (see {@link ProductRecordReader}) with
+ * {@code BatchWriteItem} calls of 25 items, each product contributing one item to the products
+ * table, one to the stocks table and, with {@code PRODUCT_VIEW_TABLE_NAME} set, one to the product view.
+ * <p>
+ * Several writers run concurrently and share an {@link AdaptiveBackoff}, so they all slow down
+ * when DynamoDB throttles. Progress is written to a checkpoint file, and running the loader again
+ * with the same file resumes after the last line known to be written.
+ * <pre>
+ * java org.example.BulkLoader products.jsonl [--writers 8] [--checkpoint products.jsonl.checkpoint]
+ * </pre>
+ */
+public class BulkLoader {
+
+    static final int MAX_BATCH_SIZE = 25;
+    private static final int MAX_ATTEMPTS = 20;
+    private static final int DEFAULT_WRITERS = 8;
+    private static final long REPORT_INTERVAL_SECONDS = 5;
+
+    private final DynamoDbClient dynamoDb;
+    private final String productsTable;
+    private final String stocksTable;
+    private final String viewTable;
+    private final int writers;
+
+    private final AdaptiveBackoff backoff = new AdaptiveBackoff();
+    private final LongAdder itemsWritten = new LongAdder();
+    private final LongAdder throttledCalls = new LongAdder();
+
+    /**
+     * @param viewTable the product view table, or {@code null} to write only products and stocks
+     */
+    public BulkLoader(DynamoDbClient dynamoDb, String productsTable, String stocksTable, String viewTable, int writers) {
+        this.dynamoDb = dynamoDb;
+        this.productsTable = productsTable;
+        this.stocksTable = stocksTable;
+        this.viewTable = viewTable;
+        this.writers = writers;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: BulkLoader <products.csv|products.jsonl> [--writers N] [--checkpoint FILE]");
+            System.exit(1);
+        }
+
+        Path file = Path.of(args[0]);
+        int writers = DEFAULT_WRITERS;
+        Path checkpoint = Path.of(args[0] + ".checkpoint");
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--writers" -> writers = Integer.parseInt(args[i + 1]);
+                case "--checkpoint" -> checkpoint = Path.of(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        try (DynamoDbClient dynamoDb = DynamoDbClientFactory.fromEnv().createClient()) {
+            new BulkLoader(dynamoDb,
+                    Optional.ofNullable(System.getenv("PRODUCTS_TABLE_NAME")).orElse("products"),
+                    Optional.ofNullable(System.getenv("STOCKS_TABLE_NAME")).orElse("stocks"),
+                    System.getenv("PRODUCT_VIEW_TABLE_NAME"),
+                    writers)
+                    .load(file, checkpoint);
+        }
+    }
+
+    public void load(Path file, Path checkpointFile) throws IOException, InterruptedException {
+        Checkpoint checkpoint = Checkpoint.open(checkpointFile);
+        long resumeAfter = checkpoint.lastLine();
+        if (resumeAfter > 0) {
+            System.out.println("⏩ Resuming " + file + " after line " + resumeAfter);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        // keeps the reader at most a couple of batches ahead of the writers
+        Semaphore inFlight = new Semaphore(writers * 2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        long start = System.nanoTime();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> report(start, "⏳"),
+                REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        try (ProductRecordReader reader = new ProductRecordReader(file)) {
+            Batch batch = new Batch(0, resumeAfter);
+            ProductRecord record;
+            while ((record = reader.next()) != null && failure.get() == null) {
+                if (record.line() <= resumeAfter) {
+                    continue;
+                }
+
+                batch.add(productsTable, productItem(record));
+                if (batch.size == MAX_BATCH_SIZE) {
+                    batch = submit(batch, pool, inFlight, checkpoint, failure);
+                }
+                batch.add(stocksTable, stockItem(record));
+                if (viewTable != null) {
+                    if (batch.size == MAX_BATCH_SIZE) {
+                        batch = submit(batch, pool, inFlight, checkpoint, failure);
+                    }
+                    batch.add(viewTable, viewItem(record));
+                }
+                batch.lastLine = record.line();
+                if (batch.size == MAX_BATCH_SIZE) {
+                    batch = submit(batch, pool, inFlight, checkpoint, failure);
+                }
+            }
+            if (batch.size > 0 && failure.get() == null) {
+                submit(batch, pool, inFlight, checkpoint, failure);
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            reporter.shutdownNow();
+            checkpoint.save();
+        }
+
+        if (failure.get() != null) {
+            System.out.println("❌ Load stopped, rerun the same command to resume after line " + checkpoint.lastLine());
+            throw new IOException("Bulk load of " + file + " failed: " + failure.get().getMessage(), failure.get());
+        }
+        report(start, "✅");
+    }
+
+    private Batch submit(Batch batch, ExecutorService pool, Semaphore inFlight,
+                         Checkpoint checkpoint, AtomicReference<Throwable> failure) throws InterruptedException {
+        inFlight.acquire();
+        pool.execute(() -> {
+            try {
+                write(batch.items);
+                checkpoint.complete(batch.sequence, batch.lastLine);
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                inFlight.release();
+            }
+        });
+        return new Batch(batch.sequence + 1, batch.lastLine);
+    }
+
+    private void write(Map<String, List<WriteRequest>> items) throws InterruptedException {
+        Map<String, List<WriteRequest>> pending = items;
+        for (int attempt = 1; ; attempt++) {
+            backoff.pause();
+            int requested = count(pending);
+            try {
+                pending = dynamoDb.batchWriteItem(BatchWriteItemRequest.builder().requestItems(pending).build())
+                        .unprocessedItems();
+                itemsWritten.add(requested - count(pending));
+                if (pending.isEmpty()) {
+                    backoff.onSuccess();
+                    return;
+                }
+                backoff.onThrottle();
+                throttledCalls.increment();
+            } catch (DynamoDbException e) {
+                if (!e.isThrottlingException()) {
+                    throw e;
+                }
+                backoff.onThrottle();
+                throttledCalls.increment();
+            }
+
+            if (attempt == MAX_ATTEMPTS) {
+                throw new RuntimeException(count(pending) + " items still unprocessed after " + MAX_ATTEMPTS + " attempts");
+            }
+        }
+    }
+
+    private void report(long start, String prefix) {
+        double seconds = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+        long written = itemsWritten.sum();
+        System.out.printf("%s %d items written in %.1f s (%.0f items/sec), %d throttled calls, backoff %d ms%n",
+                prefix, written, seconds, written / seconds, throttledCalls.sum(), backoff.currentDelayMillis());
+    }
+
+    private static int count(Map<String, List<WriteRequest>> items) {
+        int count = 0;
+        for (List<WriteRequest> requests : items.values()) {
+            count += requests.size();
+        }
+        return count;
+    }
+
+    private static Map<String, AttributeValue> productItem(ProductRecord record) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("id", AttributeValue.builder().s(record.id()).build());
+        item.put("title", AttributeValue.builder().s(record.title()).build());
+        item.put("description", AttributeValue.builder().s(record.description()).build());
+        item.put("price", AttributeValue.builder().n(String.valueOf(record.price())).build());
+        IndexKeys.addTo(item, record.title(), record.price());
+        return item;
+    }
+
+    private static Map<String, AttributeValue> stockItem(ProductRecord record) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("product_id", AttributeValue.builder().s(record.id()).build());
+        item.put("count", AttributeValue.builder().n(String.valueOf(record.count())).build());
+        return item;
+    }
+
+    private static Map<String, AttributeValue> viewItem(ProductRecord record) {
+        Map<String, AttributeValue> item = productItem(record);
+        item.put("count", AttributeValue.builder().n(String.valueOf(record.count())).build());
+        return item;
+    }
+
+    private static final class Batch {
+        final long sequence;
+        final Map<String, List<WriteRequest>> items = new HashMap<>();
+        int size;
+        long lastLine;
+
+        Batch(long sequence, long lastLine) {
+            this.sequence = sequence;
+            this.lastLine = lastLine;
+        }
+
+        void add(String table, Map<String, AttributeValue> item) {
+            items.computeIfAbsent(table, ignored -> new ArrayList<>())
+                    .add(WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build());
+            size++;
+        }
+    }
+}
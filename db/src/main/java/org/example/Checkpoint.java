@@ -0,0 +1,66 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.TreeMap;
+
+/**
+ * Remembers the last input line up to which every product has been written. Batches finish out of
+ * order on concurrent writers, so the position only advances over an unbroken run of finished batches.
+ */
+class Checkpoint {
+
+    private static final long SAVE_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final Path path;
+    private final TreeMap<Long, Long> finished = new TreeMap<>();
+    private long nextSequence;
+    private long lastLine;
+    private long lastSave = System.nanoTime();
+
+    private Checkpoint(Path path, long lastLine) {
+        this.path = path;
+        this.lastLine = lastLine;
+    }
+
+    static Checkpoint open(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return new Checkpoint(path, 0);
+        }
+        return new Checkpoint(path, Long.parseLong(Files.readString(path, StandardCharsets.UTF_8).trim()));
+    }
+
+    synchronized long lastLine() {
+        return lastLine;
+    }
+
+    /**
+     * Marks batch {@code sequence} (numbered from 0 in submission order) as written;
+     * {@code line} is the last input line whose items were all in this batch or an earlier one.
+     */
+    synchronized void complete(long sequence, long line) {
+        finished.put(sequence, line);
+        while (finished.containsKey(nextSequence)) {
+            lastLine = Math.max(lastLine, finished.remove(nextSequence));
+            nextSequence++;
+        }
+        if (System.nanoTime() - lastSave >= SAVE_INTERVAL_NANOS) {
+            save();
+        }
+    }
+
+    synchronized void save() {
+        try {
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.writeString(temp, Long.toString(lastLine), StandardCharsets.UTF_8);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lastSave = System.nanoTime();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not save checkpoint " + path, e);
+        }
+    }
+}
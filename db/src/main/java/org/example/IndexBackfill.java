@@ -0,0 +1,189 @@
+package org.example;
+
+import org.example.dynamodb.DynamoDbClientFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adds the secondary index keys (see {@link IndexKeys}) to the product items written before the
+ * {@code price-index} and {@code title-index} existed, in the products table and, with
+ * {@code PRODUCT_VIEW_TABLE_NAME} set, in the product view. Items are left out of an index until
+ * they carry its keys, so filtered product reads only see the whole catalog once this has run.
+ * <p>
+ * Each worker scans one parallel-scan segment and updates the items whose keys are missing or
+ * stale; items written by product-service or the bulk loader already have them, so running it
+ * again is cheap.
+ * <pre>
+ * java org.example.IndexBackfill [--segments 8]
+ * </pre>
+ */
+public class IndexBackfill {
+
+    private static final int MAX_ATTEMPTS = 20;
+    private static final int DEFAULT_SEGMENTS = 8;
+    private static final long REPORT_INTERVAL_SECONDS = 5;
+    private static final List<String> INDEX_KEYS = List.of("price_bucket", "title_key", "title_lc");
+
+    private final DynamoDbClient dynamoDb;
+    private final List<String> tables;
+    private final int segments;
+
+    private final AdaptiveBackoff backoff = new AdaptiveBackoff();
+    private final LongAdder itemsScanned = new LongAdder();
+    private final LongAdder itemsUpdated = new LongAdder();
+    private final LongAdder throttledCalls = new LongAdder();
+
+    public IndexBackfill(DynamoDbClient dynamoDb, List<String> tables, int segments) {
+        this.dynamoDb = dynamoDb;
+        this.tables = tables;
+        this.segments = segments;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int segments = DEFAULT_SEGMENTS;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--segments" -> segments = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        List<String> tables = new ArrayList<>(2);
+        tables.add(Optional.ofNullable(System.getenv("PRODUCTS_TABLE_NAME")).orElse("products"));
+        Optional.ofNullable(System.getenv("PRODUCT_VIEW_TABLE_NAME")).ifPresent(tables::add);
+
+        try (DynamoDbClient dynamoDb = DynamoDbClientFactory.fromEnv().createClient()) {
+            new IndexBackfill(dynamoDb, tables, segments).run();
+        }
+    }
+
+    public void run() throws InterruptedException {
+        for (String table : tables) {
+            backfill(table);
+        }
+    }
+
+    private void backfill(String table) throws InterruptedException {
+        itemsScanned.reset();
+        itemsUpdated.reset();
+        ExecutorService pool = Executors.newFixedThreadPool(segments);
+        long start = System.nanoTime();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> report(table, start, "⏳"),
+                REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        List<Future<?>> workers = new ArrayList<>(segments);
+        try {
+            for (int segment = 0; segment < segments; segment++) {
+                int current = segment;
+                workers.add(pool.submit(() -> {
+                    backfillSegment(table, current);
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            System.out.println("❌ Backfill stopped, rerun it to continue");
+            throw new RuntimeException("Failed to backfill index keys of " + table + ": " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            workers.forEach(worker -> worker.cancel(true));
+            pool.shutdownNow();
+            reporter.shutdownNow();
+        }
+        report(table, start, "✅");
+    }
+
+    private void backfillSegment(String table, int segment) throws InterruptedException {
+        Map<String, AttributeValue> startKey = null;
+        do {
+            ScanRequest.Builder request = ScanRequest.builder()
+                    .tableName(table)
+                    .segment(segment)
+                    .totalSegments(segments)
+                    .projectionExpression("id, title, price, price_bucket, title_key, title_lc");
+            if (startKey != null) {
+                request.exclusiveStartKey(startKey);
+            }
+
+            ScanResponse response = dynamoDb.scan(request.build());
+            for (Map<String, AttributeValue> item : response.items()) {
+                itemsScanned.increment();
+                // view items created by a stock update before the view backfill have no product attributes yet
+                if (item.containsKey("price")) {
+                    updateIfStale(table, item);
+                }
+            }
+            startKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                    ? response.lastEvaluatedKey()
+                    : null;
+        } while (startKey != null);
+    }
+
+    private void updateIfStale(String table, Map<String, AttributeValue> item) throws InterruptedException {
+        Map<String, AttributeValue> keys = new HashMap<>();
+        AttributeValue title = item.get("title");
+        IndexKeys.addTo(keys, title == null ? null : title.s(), Integer.parseInt(item.get("price").n()));
+
+        List<String> set = new ArrayList<>(3);
+        List<String> remove = new ArrayList<>(2);
+        Map<String, AttributeValue> values = new HashMap<>();
+        for (String name : INDEX_KEYS) {
+            AttributeValue value = keys.get(name);
+            if (value == null) {
+                if (item.containsKey(name)) {
+                    remove.add(name);
+                }
+            } else if (!value.equals(item.get(name))) {
+                set.add(name + " = :" + name);
+                values.put(":" + name, value);
+            }
+        }
+        if (set.isEmpty() && remove.isEmpty()) {
+            return;
+        }
+
+        StringBuilder expression = new StringBuilder();
+        if (!set.isEmpty()) {
+            expression.append("SET ").append(String.join(", ", set));
+        }
+        if (!remove.isEmpty()) {
+            expression.append(expression.isEmpty() ? "" : " ").append("REMOVE ").append(String.join(", ", remove));
+        }
+        UpdateItemRequest.Builder request = UpdateItemRequest.builder()
+                .tableName(table)
+                .key(Map.of("id", item.get("id")))
+                .updateExpression(expression.toString());
+        if (!values.isEmpty()) {
+            request.expressionAttributeValues(values);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            backoff.pause();
+            try {
+                dynamoDb.updateItem(request.build());
+                backoff.onSuccess();
+                itemsUpdated.increment();
+                return;
+            } catch (DynamoDbException e) {
+                if (!e.isThrottlingException() || attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                backoff.onThrottle();
+                throttledCalls.increment();
+            }
+        }
+    }
+
+    private void report(String table, long start, String prefix) {
+        double seconds = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+        System.out.printf("%s %s: %d items scanned, %d updated in %.1f s, %d throttled calls, backoff %d ms%n",
+                prefix, table, itemsScanned.sum(), itemsUpdated.sum(), seconds, throttledCalls.sum(),
+                backoff.currentDelayMillis());
+    }
+}
@@ -0,0 +1,32 @@
+package org.example;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The key attributes of the {@code price-index} and {@code title-index} secondary indexes of the
+ * products table and the product view, computed the way product-service's {@code ProductItems} does.
+ */
+final class IndexKeys {
+
+    static final int PRICE_BUCKET_WIDTH = 100;
+
+    private IndexKeys() {
+    }
+
+    /**
+     * Adds {@code price_bucket}, and for a non-empty title {@code title_key} and {@code title_lc},
+     * to a product or view item.
+     */
+    static void addTo(Map<String, AttributeValue> item, String title, int price) {
+        item.put("price_bucket", AttributeValue.builder().n(String.valueOf(Math.floorDiv(price, PRICE_BUCKET_WIDTH))).build());
+        String titleLc = title == null ? "" : title.toLowerCase(Locale.ROOT);
+        if (!titleLc.isEmpty()) {
+            item.put("title_key", AttributeValue.builder()
+                    .s(titleLc.substring(0, Character.charCount(titleLc.codePointAt(0)))).build());
+            item.put("title_lc", AttributeValue.builder().s(titleLc).build());
+        }
+    }
+}
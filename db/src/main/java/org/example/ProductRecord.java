@@ -0,0 +1,7 @@
+package org.example;
+
+/**
+ * One product read from an import file; {@code line} is its 1-based line number in that file.
+ */
+public record ProductRecord(long line, String id, String title, String description, int price, int count) {
+}
@@ -0,0 +1,141 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reads products one line at a time from a {@code .jsonl} file (one JSON object per line) or a
+ * {@code .csv} file with a header row. Both formats use the fields {@code id} (optional),
+ * {@code title}, {@code description}, {@code price} and {@code count}.
+ * <p>
+ * Rows without an id get one derived from the file name and line number, so loading the same
+ * file again after a crash overwrites the same items instead of creating duplicates.
+ */
+public class ProductRecordReader implements Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final BufferedReader reader;
+    private final String source;
+    private final boolean csv;
+    private List<String> header;
+    private long line;
+
+    public ProductRecordReader(Path file) throws IOException {
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        this.source = file.getFileName().toString();
+        this.csv = source.toLowerCase().endsWith(".csv");
+        if (csv) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new IOException("CSV file " + file + " has no header row");
+            }
+            line++;
+            header = parseCsvLine(headerLine);
+        }
+    }
+
+    /**
+     * @return the next product, or {@code null} at the end of the file
+     */
+    public ProductRecord next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+        } while (text.isBlank());
+
+        Map<String, String> fields = csv ? csvFields(text) : jsonFields(text);
+        try {
+            String id = fields.get("id");
+            return new ProductRecord(
+                    line,
+                    id == null || id.isEmpty()
+                            ? UUID.nameUUIDFromBytes((source + ":" + line).getBytes(StandardCharsets.UTF_8)).toString()
+                            : id,
+                    required(fields, "title"),
+                    fields.getOrDefault("description", ""),
+                    Integer.parseInt(required(fields, "price")),
+                    Integer.parseInt(fields.getOrDefault("count", "0"))
+            );
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid product on line " + line + " of " + source + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static String required(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("missing " + name);
+        }
+        return value;
+    }
+
+    private Map<String, String> jsonFields(String text) throws IOException {
+        JsonNode node = MAPPER.readTree(text);
+        Map<String, String> fields = new HashMap<>();
+        node.fields().forEachRemaining(field -> fields.put(field.getKey(), field.getValue().asText()));
+        return fields;
+    }
+
+    private Map<String, String> csvFields(String text) {
+        List<String> values = parseCsvLine(text);
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.size() && i < values.size(); i++) {
+            fields.put(header.get(i).trim(), values.get(i));
+        }
+        return fields;
+    }
+
+    /**
+     * Splits one CSV line, honouring double-quoted fields with {@code ""} escapes.
+     * Quoted fields spanning several lines are not supported.
+     */
+    static List<String> parseCsvLine(String text) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
@@ -0,0 +1,213 @@
+package org.example;
+
+import org.example.dynamodb.DynamoDbClientFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Builds the product view (one item per product with its stock {@code count}) from the existing
+ * {@code products} and {@code stocks} tables, for product-service's {@code PRODUCT_READ_SOURCE=view}.
+ * <p>
+ * Each worker scans one parallel-scan segment of the products table, reads the stock items of a page
+ * with {@code BatchGetItem} and writes every view item with an {@code UpdateItem} that keeps a count
+ * already in the view: product-service writes the view as soon as {@code PRODUCT_VIEW_TABLE_NAME} is
+ * set, and its counts are newer than the ones read here. So the backfill can run while the service
+ * is live, and running it again is harmless.
+ * <pre>
+ * PRODUCT_VIEW_TABLE_NAME=product_view java org.example.ViewBackfill [--segments 8]
+ * </pre>
+ */
+public class ViewBackfill {
+
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_ATTEMPTS = 20;
+    private static final int DEFAULT_SEGMENTS = 8;
+    private static final long REPORT_INTERVAL_SECONDS = 5;
+
+    private final DynamoDbClient dynamoDb;
+    private final String productsTable;
+    private final String stocksTable;
+    private final String viewTable;
+    private final int segments;
+
+    private final AdaptiveBackoff backoff = new AdaptiveBackoff();
+    private final LongAdder itemsWritten = new LongAdder();
+    private final LongAdder throttledCalls = new LongAdder();
+
+    public ViewBackfill(DynamoDbClient dynamoDb, String productsTable, String stocksTable, String viewTable, int segments) {
+        this.dynamoDb = dynamoDb;
+        this.productsTable = productsTable;
+        this.stocksTable = stocksTable;
+        this.viewTable = viewTable;
+        this.segments = segments;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int segments = DEFAULT_SEGMENTS;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--segments" -> segments = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        try (DynamoDbClient dynamoDb = DynamoDbClientFactory.fromEnv().createClient()) {
+            new ViewBackfill(dynamoDb,
+                    Optional.ofNullable(System.getenv("PRODUCTS_TABLE_NAME")).orElse("products"),
+                    Optional.ofNullable(System.getenv("STOCKS_TABLE_NAME")).orElse("stocks"),
+                    Optional.ofNullable(System.getenv("PRODUCT_VIEW_TABLE_NAME")).orElse("product_view"),
+                    segments)
+                    .run();
+        }
+    }
+
+    public void run() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(segments);
+        long start = System.nanoTime();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> report(start, "⏳"),
+                REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        List<Future<?>> workers = new ArrayList<>(segments);
+        try {
+            for (int segment = 0; segment < segments; segment++) {
+                int current = segment;
+                workers.add(pool.submit(() -> {
+                    backfillSegment(current);
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            System.out.println("❌ Backfill stopped, rerun it to continue");
+            throw new RuntimeException("Failed to backfill " + viewTable + ": " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            workers.forEach(worker -> worker.cancel(true));
+            pool.shutdownNow();
+            reporter.shutdownNow();
+        }
+        report(start, "✅");
+    }
+
+    private void backfillSegment(int segment) throws InterruptedException {
+        Map<String, AttributeValue> startKey = null;
+        do {
+            ScanRequest.Builder request = ScanRequest.builder()
+                    .tableName(productsTable)
+                    .segment(segment)
+                    .totalSegments(segments)
+                    .limit(MAX_BATCH_SIZE);
+            if (startKey != null) {
+                request.exclusiveStartKey(startKey);
+            }
+
+            ScanResponse response = dynamoDb.scan(request.build());
+            if (response.hasItems() && !response.items().isEmpty()) {
+                Map<String, Map<String, AttributeValue>> stocks = loadStocks(response.items());
+                for (Map<String, AttributeValue> productItem : response.items()) {
+                    writeViewItem(productItem, stocks.get(productItem.get("id").s()));
+                }
+            }
+            startKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                    ? response.lastEvaluatedKey()
+                    : null;
+        } while (startKey != null);
+    }
+
+    private Map<String, Map<String, AttributeValue>> loadStocks(List<Map<String, AttributeValue>> productItems)
+            throws InterruptedException {
+        List<Map<String, AttributeValue>> keys = new ArrayList<>(productItems.size());
+        for (Map<String, AttributeValue> productItem : productItems) {
+            keys.add(Map.of("product_id", productItem.get("id")));
+        }
+
+        Map<String, Map<String, AttributeValue>> stocks = new HashMap<>(keys.size() * 2);
+        Map<String, KeysAndAttributes> pending = Map.of(stocksTable, KeysAndAttributes.builder().keys(keys).build());
+        for (int attempt = 1; ; attempt++) {
+            backoff.pause();
+            try {
+                BatchGetItemResponse response = dynamoDb.batchGetItem(
+                        BatchGetItemRequest.builder().requestItems(pending).build());
+                for (Map<String, AttributeValue> stockItem : response.responses().getOrDefault(stocksTable, List.of())) {
+                    stocks.put(stockItem.get("product_id").s(), stockItem);
+                }
+                pending = response.unprocessedKeys();
+                if (pending.isEmpty()) {
+                    backoff.onSuccess();
+                    return stocks;
+                }
+                backoff.onThrottle();
+                throttledCalls.increment();
+            } catch (DynamoDbException e) {
+                if (!e.isThrottlingException()) {
+                    throw e;
+                }
+                backoff.onThrottle();
+                throttledCalls.increment();
+            }
+
+            if (attempt == MAX_ATTEMPTS) {
+                throw new RuntimeException("Stock keys still unprocessed after " + MAX_ATTEMPTS + " attempts");
+            }
+        }
+    }
+
+    /**
+     * Sets the product attributes with their index keys and, unless the view already has one, the stock count.
+     */
+    private void writeViewItem(Map<String, AttributeValue> productItem, Map<String, AttributeValue> stockItem)
+            throws InterruptedException {
+        AttributeValue count = stockItem == null ? AttributeValue.builder().n("0").build() : stockItem.get("count");
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":title", productItem.get("title"));
+        values.put(":description", productItem.get("description"));
+        values.put(":price", productItem.get("price"));
+        values.put(":count", count);
+
+        Map<String, AttributeValue> indexKeys = new HashMap<>();
+        IndexKeys.addTo(indexKeys, productItem.get("title").s(), Integer.parseInt(productItem.get("price").n()));
+        StringBuilder expression = new StringBuilder(
+                "SET title = :title, description = :description, price = :price, #count = if_not_exists(#count, :count)");
+        indexKeys.forEach((name, value) -> {
+            expression.append(", ").append(name).append(" = :").append(name);
+            values.put(":" + name, value);
+        });
+
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(viewTable)
+                .key(Map.of("id", productItem.get("id")))
+                .updateExpression(expression.toString())
+                .expressionAttributeNames(Map.of("#count", "count"))
+                .expressionAttributeValues(values)
+                .build();
+
+        for (int attempt = 1; ; attempt++) {
+            backoff.pause();
+            try {
+                dynamoDb.updateItem(request);
+                backoff.onSuccess();
+                itemsWritten.increment();
+                return;
+            } catch (DynamoDbException e) {
+                if (!e.isThrottlingException() || attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                backoff.onThrottle();
+                throttledCalls.increment();
+            }
+        }
+    }
+
+    private void report(long start, String prefix) {
+        double seconds = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+        long written = itemsWritten.sum();
+        System.out.printf("%s %d view items written in %.1f s (%.0f items/sec), %d throttled calls, backoff %d ms%n",
+                prefix, written, seconds, written / seconds, throttledCalls.sum(), backoff.currentDelayMillis());
+    }
+}
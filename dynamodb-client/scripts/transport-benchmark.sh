@@ -0,0 +1,21 @@
+#!/usr/bin/env bash
+# Runs TransportBenchmark for every HTTP transport in fresh JVMs: client build time, time to the
+# first GetItem response and p50/p99 of the following calls. Point it at DynamoDB Local with
+# DYNAMODB_ENDPOINT (and dummy AWS_* credentials) or at a real table via PRODUCTS_TABLE_NAME.
+#
+#   RUNS=3 ITERATIONS=2000 scripts/transport-benchmark.sh
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+RUNS=${RUNS:-3}
+ITERATIONS=${ITERATIONS:-1000}
+
+mvn -q -B test-compile dependency:build-classpath \
+    -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+CP="target/classes:target/test-classes:$(cat target/test-classpath.txt)"
+
+for transport in urlconnection apache crt; do
+    for _ in $(seq "$RUNS"); do
+        java -cp "$CP" org.example.dynamodb.TransportBenchmark "$transport" "$ITERATIONS"
+    done
+done
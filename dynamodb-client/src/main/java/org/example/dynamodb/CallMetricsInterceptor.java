@@ -0,0 +1,135 @@
+package org.example.dynamodb;
+
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.List;
+
+/**
+ * Asks DynamoDB for the consumed capacity of every call that can report it
+ * ({@code ReturnConsumedCapacity=TOTAL}, unless the caller set it) and hands the operation,
+ * its latency and that capacity to a {@link DynamoDbCallListener}.
+ */
+class CallMetricsInterceptor implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Long> STARTED_AT = new ExecutionAttribute<>("CallMetricsInterceptor.startedAt");
+
+    private final DynamoDbCallListener listener;
+
+    CallMetricsInterceptor(DynamoDbCallListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(STARTED_AT, System.nanoTime());
+    }
+
+    @Override
+    public SdkRequest modifyRequest(Context.ModifyRequest context, ExecutionAttributes executionAttributes) {
+        SdkRequest request = context.request();
+        ReturnConsumedCapacity total = ReturnConsumedCapacity.TOTAL;
+        if (request instanceof GetItemRequest get && get.returnConsumedCapacity() == null) {
+            return get.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof PutItemRequest put && put.returnConsumedCapacity() == null) {
+            return put.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof UpdateItemRequest update && update.returnConsumedCapacity() == null) {
+            return update.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof DeleteItemRequest delete && delete.returnConsumedCapacity() == null) {
+            return delete.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof QueryRequest query && query.returnConsumedCapacity() == null) {
+            return query.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof ScanRequest scan && scan.returnConsumedCapacity() == null) {
+            return scan.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof BatchGetItemRequest batchGet && batchGet.returnConsumedCapacity() == null) {
+            return batchGet.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof BatchWriteItemRequest batchWrite && batchWrite.returnConsumedCapacity() == null) {
+            return batchWrite.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof TransactGetItemsRequest transactGet && transactGet.returnConsumedCapacity() == null) {
+            return transactGet.toBuilder().returnConsumedCapacity(total).build();
+        }
+        if (request instanceof TransactWriteItemsRequest transactWrite && transactWrite.returnConsumedCapacity() == null) {
+            return transactWrite.toBuilder().returnConsumedCapacity(total).build();
+        }
+        return request;
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        listener.onCall(operation(executionAttributes), latency(executionAttributes), consumedCapacity(context.response()), false);
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        listener.onCall(operation(executionAttributes), latency(executionAttributes), 0, true);
+    }
+
+    private static double consumedCapacity(SdkResponse response) {
+        if (response instanceof GetItemResponse get) {
+            return units(get.consumedCapacity());
+        }
+        if (response instanceof PutItemResponse put) {
+            return units(put.consumedCapacity());
+        }
+        if (response instanceof UpdateItemResponse update) {
+            return units(update.consumedCapacity());
+        }
+        if (response instanceof DeleteItemResponse delete) {
+            return units(delete.consumedCapacity());
+        }
+        if (response instanceof QueryResponse query) {
+            return units(query.consumedCapacity());
+        }
+        if (response instanceof ScanResponse scan) {
+            return units(scan.consumedCapacity());
+        }
+        if (response instanceof BatchGetItemResponse batchGet && batchGet.hasConsumedCapacity()) {
+            return units(batchGet.consumedCapacity());
+        }
+        if (response instanceof BatchWriteItemResponse batchWrite && batchWrite.hasConsumedCapacity()) {
+            return units(batchWrite.consumedCapacity());
+        }
+        if (response instanceof TransactGetItemsResponse transactGet && transactGet.hasConsumedCapacity()) {
+            return units(transactGet.consumedCapacity());
+        }
+        if (response instanceof TransactWriteItemsResponse transactWrite && transactWrite.hasConsumedCapacity()) {
+            return units(transactWrite.consumedCapacity());
+        }
+        return 0;
+    }
+
+    private static double units(List<ConsumedCapacity> capacities) {
+        double units = 0;
+        for (ConsumedCapacity capacity : capacities) {
+            units += units(capacity);
+        }
+        return units;
+    }
+
+    private static double units(ConsumedCapacity capacity) {
+        return capacity == null || capacity.capacityUnits() == null ? 0 : capacity.capacityUnits();
+    }
+
+    private static String operation(ExecutionAttributes executionAttributes) {
+        return executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+    }
+
+    private static long latency(ExecutionAttributes executionAttributes) {
+        Long startedAt = executionAttributes.getAttribute(STARTED_AT);
+        return startedAt == null ? 0 : System.nanoTime() - startedAt;
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.dynamodb;
+
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtHttpClient;
+
+import java.time.Duration;
+
+/**
+ * The only class that touches the CRT client, so {@link DynamoDbClientFactory} loads without
+ * the optional {@code aws-crt-client} and {@code aws-crt} dependencies unless CRT is selected.
+ * The CRT clients have no socket read timeout; the connect timeout still applies.
+ */
+final class CrtTransport {
+
+    private CrtTransport() {
+    }
+
+    static SdkHttpClient.Builder<?> httpClientBuilder(int maxConnections, Duration connectTimeout) {
+        return AwsCrtHttpClient.builder()
+                .maxConcurrency(maxConnections)
+                .connectionTimeout(connectTimeout);
+    }
+
+    static SdkAsyncHttpClient.Builder<?> asyncHttpClientBuilder(int maxConnections, Duration connectTimeout) {
+        return AwsCrtAsyncHttpClient.builder()
+                .maxConcurrency(maxConnections)
+                .connectionTimeout(connectTimeout);
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.dynamodb;
+
+/**
+ * Told about every DynamoDB call of a client built with {@link DynamoDbClientFactory#withCallListener},
+ * once it completed or failed, retries included. Called on the thread that finished the call, so it
+ * has to be cheap and thread-safe.
+ */
+@FunctionalInterface
+public interface DynamoDbCallListener {
+
+    /**
+     * @param operation        the API operation, e.g. {@code GetItem}
+     * @param latencyNanos     time from the start of the call until it completed or failed
+     * @param consumedCapacity capacity units the call consumed over all tables and indexes, {@code 0} if it failed
+     */
+    void onCall(String operation, long latencyNanos, double consumedCapacity, boolean failed);
+}
@@ -0,0 +1,216 @@
+package org.example.dynamodb;
+
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClientBuilder;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Builds the DynamoDB clients of product-service and db with one set of settings: the HTTP
+ * transport, its connection pool and timeouts, the retry mode and an optional endpoint override.
+ * <p>
+ * When {@code AWS_REGION} and the {@code AWS_ACCESS_KEY_ID}/{@code AWS_SECRET_ACCESS_KEY} pair are
+ * set, as they always are in Lambda, the region and the environment credentials are used directly
+ * instead of walking the default provider chains (profile files, container and instance metadata).
+ */
+public class DynamoDbClientFactory {
+
+    public enum Transport {
+        /** JDK {@code HttpURLConnection}: smallest and quickest to initialize, no connection pool limit. */
+        URL_CONNECTION,
+        /** Apache HttpClient: the SDK default, pooled connections. */
+        APACHE,
+        /** AWS Common Runtime: native HTTP client, needs {@code aws-crt-client} and {@code aws-crt} on the classpath. */
+        CRT;
+
+        public static Transport parse(String name) {
+            return switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "urlconnection", "url-connection", "url_connection" -> URL_CONNECTION;
+                case "apache" -> APACHE;
+                case "crt" -> CRT;
+                default -> throw new IllegalArgumentException("Unknown HTTP client " + name + ", use urlconnection, apache or crt");
+            };
+        }
+    }
+
+    private static final int DEFAULT_MAX_CONNECTIONS = 50;
+    private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 2_000;
+    private static final int DEFAULT_SOCKET_TIMEOUT_MILLIS = 30_000;
+    private static final Duration IN_FLIGHT_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Transport transport;
+    private final int maxConnections;
+    private final int maxInFlight;
+    private final Duration connectTimeout;
+    private final Duration socketTimeout;
+    private final RetryMode retryMode;
+    private final URI endpoint;
+    private final Region region;
+    private final boolean environmentCredentials;
+    private final DynamoDbCallListener callListener;
+    private final InFlightLimiter inFlightLimiter;
+
+    /**
+     * @param maxInFlight calls the clients of this factory let run at once, together (see {@link InFlightLimiter}),
+     *                    {@code 0} for no limit
+     * @param endpoint    DynamoDB endpoint, e.g. DynamoDB Local, or {@code null} for the regional one
+     * @param region      region, or {@code null} to use the SDK's region provider chain
+     */
+    public DynamoDbClientFactory(Transport transport, int maxConnections, int maxInFlight, Duration connectTimeout,
+                                 Duration socketTimeout, RetryMode retryMode, URI endpoint, Region region,
+                                 boolean environmentCredentials) {
+        this(transport, maxConnections, maxInFlight, connectTimeout, socketTimeout, retryMode, endpoint, region,
+                environmentCredentials, null,
+                maxInFlight > 0 ? new InFlightLimiter(maxInFlight, IN_FLIGHT_TIMEOUT) : null);
+    }
+
+    private DynamoDbClientFactory(Transport transport, int maxConnections, int maxInFlight, Duration connectTimeout,
+                                  Duration socketTimeout, RetryMode retryMode, URI endpoint, Region region,
+                                  boolean environmentCredentials, DynamoDbCallListener callListener,
+                                  InFlightLimiter inFlightLimiter) {
+        this.transport = transport;
+        this.maxConnections = maxConnections;
+        this.maxInFlight = maxInFlight;
+        this.connectTimeout = connectTimeout;
+        this.socketTimeout = socketTimeout;
+        this.retryMode = retryMode;
+        this.endpoint = endpoint;
+        this.region = region;
+        this.environmentCredentials = environmentCredentials;
+        this.callListener = callListener;
+        this.inFlightLimiter = inFlightLimiter;
+    }
+
+    /**
+     * Reads {@code DYNAMODB_HTTP_CLIENT} ({@code urlconnection}, {@code apache} or {@code crt}),
+     * {@code DYNAMODB_MAX_CONNECTIONS}, {@code DYNAMODB_MAX_IN_FLIGHT} (defaults to the connection count with
+     * {@code VIRTUAL_THREADS_ENABLED}, to no limit otherwise),
+     * {@code DYNAMODB_CONNECT_TIMEOUT_MS}, {@code DYNAMODB_SOCKET_TIMEOUT_MS},
+     * {@code DYNAMODB_RETRY_MODE} ({@code adaptive}, {@code standard} or {@code legacy}), {@code DYNAMODB_ENDPOINT},
+     * {@code AWS_REGION} and whether the access key variables are set.
+     */
+    public static DynamoDbClientFactory fromEnv() {
+        int maxConnections = intEnv("DYNAMODB_MAX_CONNECTIONS", DEFAULT_MAX_CONNECTIONS);
+        // fixed pools bound the callers already, virtual threads do not
+        boolean virtualThreads = Boolean.parseBoolean(System.getenv("VIRTUAL_THREADS_ENABLED"));
+        return new DynamoDbClientFactory(
+                Optional.ofNullable(System.getenv("DYNAMODB_HTTP_CLIENT")).map(Transport::parse).orElse(Transport.APACHE),
+                maxConnections,
+                intEnv("DYNAMODB_MAX_IN_FLIGHT", virtualThreads ? maxConnections : 0),
+                Duration.ofMillis(intEnv("DYNAMODB_CONNECT_TIMEOUT_MS", DEFAULT_CONNECT_TIMEOUT_MILLIS)),
+                Duration.ofMillis(intEnv("DYNAMODB_SOCKET_TIMEOUT_MS", DEFAULT_SOCKET_TIMEOUT_MILLIS)),
+                Optional.ofNullable(System.getenv("DYNAMODB_RETRY_MODE"))
+                        .map(mode -> RetryMode.valueOf(mode.trim().toUpperCase(Locale.ROOT)))
+                        .orElse(RetryMode.ADAPTIVE),
+                Optional.ofNullable(System.getenv("DYNAMODB_ENDPOINT")).map(URI::create).orElse(null),
+                Optional.ofNullable(System.getenv("AWS_REGION")).map(Region::of).orElse(null),
+                System.getenv("AWS_ACCESS_KEY_ID") != null && System.getenv("AWS_SECRET_ACCESS_KEY") != null);
+    }
+
+    public Transport transport() {
+        return transport;
+    }
+
+    /**
+     * A factory with the same settings that builds clients on {@code transport}, sharing this
+     * factory's in-flight limit.
+     */
+    public DynamoDbClientFactory withTransport(Transport transport) {
+        return new DynamoDbClientFactory(transport, maxConnections, maxInFlight, connectTimeout, socketTimeout,
+                retryMode, endpoint, region, environmentCredentials, callListener, inFlightLimiter);
+    }
+
+    /**
+     * A factory with the same settings whose clients report every call, with the capacity it consumed,
+     * to {@code callListener}; {@code null} reports nothing. Reporting makes every call that supports it
+     * ask for its consumed capacity.
+     */
+    public DynamoDbClientFactory withCallListener(DynamoDbCallListener callListener) {
+        return new DynamoDbClientFactory(transport, maxConnections, maxInFlight, connectTimeout, socketTimeout,
+                retryMode, endpoint, region, environmentCredentials, callListener, inFlightLimiter);
+    }
+
+    public DynamoDbClient createClient() {
+        DynamoDbClientBuilder builder = DynamoDbClient.builder();
+        configure(builder);
+        return builder.httpClientBuilder(httpClientBuilder()).build();
+    }
+
+    /**
+     * The async client uses the CRT transport when it is selected and Netty otherwise,
+     * since there is no async URLConnection or Apache client.
+     */
+    public DynamoDbAsyncClient createAsyncClient() {
+        DynamoDbAsyncClientBuilder builder = DynamoDbAsyncClient.builder();
+        configure(builder);
+        return builder.httpClientBuilder(asyncHttpClientBuilder()).build();
+    }
+
+    private void configure(AwsClientBuilder<?, ?> builder) {
+        ClientOverrideConfiguration.Builder overrides = ClientOverrideConfiguration.builder()
+                .retryPolicy(RetryPolicy.forRetryMode(retryMode));
+        if (callListener != null) {
+            // ahead of the limiter, so the latency includes the wait for a permit
+            overrides.addExecutionInterceptor(new CallMetricsInterceptor(callListener));
+        }
+        if (inFlightLimiter != null) {
+            // one limiter for the sync and async clients, so together they stay within maxInFlight
+            overrides.addExecutionInterceptor(inFlightLimiter);
+        }
+        builder.overrideConfiguration(overrides.build());
+        if (endpoint != null) {
+            builder.endpointOverride(endpoint);
+        }
+        if (region != null) {
+            builder.region(region);
+        }
+        if (environmentCredentials) {
+            builder.credentialsProvider(EnvironmentVariableCredentialsProvider.create());
+        }
+    }
+
+    private SdkHttpClient.Builder<?> httpClientBuilder() {
+        return switch (transport) {
+            case URL_CONNECTION -> UrlConnectionHttpClient.builder()
+                    .connectionTimeout(connectTimeout)
+                    .socketTimeout(socketTimeout);
+            case APACHE -> ApacheHttpClient.builder()
+                    .maxConnections(maxConnections)
+                    .connectionTimeout(connectTimeout)
+                    .socketTimeout(socketTimeout)
+                    .tcpKeepAlive(true);
+            case CRT -> CrtTransport.httpClientBuilder(maxConnections, connectTimeout);
+        };
+    }
+
+    private SdkAsyncHttpClient.Builder<?> asyncHttpClientBuilder() {
+        if (transport == Transport.CRT) {
+            return CrtTransport.asyncHttpClientBuilder(maxConnections, connectTimeout);
+        }
+        return NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(maxConnections)
+                .connectionTimeout(connectTimeout)
+                .readTimeout(socketTimeout)
+                .tcpKeepAlive(true);
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        return Optional.ofNullable(System.getenv(name)).map(Integer::parseInt).orElse(defaultValue);
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.dynamodb;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the number of DynamoDB calls in flight with a semaphore, held from the start of a call
+ * until it completes or fails, retries included. The clients of one {@link DynamoDbClientFactory}
+ * share one limiter.
+ * <p>
+ * With virtual threads there is no thread pool left to limit concurrency, and thousands of
+ * callers would otherwise queue inside the HTTP client's connection pool, whose locks pin
+ * virtual threads to their carriers. Waiting on the semaphore parks them instead.
+ */
+class InFlightLimiter implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Boolean> ACQUIRED = new ExecutionAttribute<>("InFlightLimiter.acquired");
+
+    private final int maxInFlight;
+    private final Duration timeout;
+    private final Semaphore permits;
+
+    InFlightLimiter(int maxInFlight, Duration timeout) {
+        this.maxInFlight = maxInFlight;
+        this.timeout = timeout;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        try {
+            if (!permits.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw SdkClientException.create("Timed out after " + timeout.toMillis() + " ms waiting for one of "
+                        + maxInFlight + " DynamoDB in-flight permits");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw SdkClientException.create("Interrupted while waiting for a DynamoDB in-flight permit", e);
+        }
+        executionAttributes.putAttribute(ACQUIRED, true);
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        release(executionAttributes);
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        release(executionAttributes);
+    }
+
+    private void release(ExecutionAttributes executionAttributes) {
+        // the attribute makes sure a permit is released once, and only if it was acquired
+        if (Boolean.TRUE.equals(executionAttributes.getAttribute(ACQUIRED))) {
+            executionAttributes.putAttribute(ACQUIRED, false);
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.dynamodb;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Startup and latency of one transport: time from JVM start to the built client, to the first
+ * answered {@code GetItem}, and the p50/p99 of the following calls. Run every transport in a fresh
+ * JVM, e.g. with {@code scripts/transport-benchmark.sh}:
+ * {@code java -cp ... org.example.dynamodb.TransportBenchmark apache [iterations]}.
+ * The other settings come from the environment like in {@link DynamoDbClientFactory#fromEnv()}.
+ */
+public class TransportBenchmark {
+
+    public static void main(String[] args) {
+        DynamoDbClientFactory.Transport transport = DynamoDbClientFactory.Transport.parse(args.length > 0 ? args[0] : "apache");
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        String table = Optional.ofNullable(System.getenv("PRODUCTS_TABLE_NAME")).orElse("products");
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+        DynamoDbClientFactory env = DynamoDbClientFactory.fromEnv();
+        long buildStart = System.nanoTime();
+        try (DynamoDbClient dynamoDb = env.withTransport(transport).createClient()) {
+            double buildMillis = (System.nanoTime() - buildStart) / 1e6;
+
+            long firstStart = System.nanoTime();
+            getItem(dynamoDb, table);
+            double firstCallMillis = (System.nanoTime() - firstStart) / 1e6;
+            long firstResponseSinceJvmStart = System.currentTimeMillis() - jvmStart;
+
+            long[] latencies = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                getItem(dynamoDb, table);
+                latencies[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(latencies);
+
+            System.out.printf("%-14s build=%.1f ms first-call=%.1f ms first-response=%d ms since JVM start p50=%.2f ms p99=%.2f ms%n",
+                    transport, buildMillis, firstCallMillis, firstResponseSinceJvmStart,
+                    latencies[iterations / 2] / 1e6, latencies[(int) (iterations * 0.99)] / 1e6);
+        }
+    }
+
+    private static void getItem(DynamoDbClient dynamoDb, String table) {
+        dynamoDb.getItem(GetItemRequest.builder()
+                .tableName(table)
+                .key(Map.of("id", AttributeValue.builder().s(UUID.randomUUID().toString()).build()))
+                .build());
+    }
+}
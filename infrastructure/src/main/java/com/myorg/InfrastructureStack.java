@@ -1,8 +1,14 @@
 package com.myorg;
 
+import software.amazon.awscdk.ArnComponents;
 import software.amazon.awscdk.Duration;
 import software.amazon.awscdk.Stack;
 import software.amazon.awscdk.StackProps;
+import software.amazon.awscdk.customresources.AwsCustomResource;
+import software.amazon.awscdk.customresources.AwsCustomResourcePolicy;
+import software.amazon.awscdk.customresources.AwsSdkCall;
+import software.amazon.awscdk.customresources.PhysicalResourceId;
+import software.amazon.awscdk.customresources.SdkCallsPolicyOptions;
 import software.amazon.awscdk.services.apigateway.*;
 import software.amazon.awscdk.services.iam.ManagedPolicy;
 import software.amazon.awscdk.services.iam.Role;
@@ -35,8 +41,16 @@ public class InfrastructureStack extends Stack {
         String productsTableName = "products"; // Имя существующей таблицы
         String stocksTableName = "stocks"; // Имя существующей таблицы
 
+        // Индексы для фильтров GET /products (цена, префикс названия) на существующей таблице
+        AwsCustomResource priceIndex = addGlobalSecondaryIndex("ProductsPriceIndex", productsTableName,
+                "price-index", "price_bucket", "N", "price", "N");
+        AwsCustomResource titleIndex = addGlobalSecondaryIndex("ProductsTitleIndex", productsTableName,
+                "title-index", "title_key", "S", "title_lc", "S");
+        // одно изменение индексов на вызов UpdateTable, поэтому по очереди
+        titleIndex.getNode().addDependency(priceIndex);
+
         Function getProductsList = Function.Builder.create(this, "GetProductsListLambda")
-                .runtime(Runtime.JAVA_17)
+                .runtime(Runtime.JAVA_21)
                 .handler("org.example.StreamLambdaHandler::handleRequest")
                 .code(Code.fromAsset("../product-service/target/product-service-1.0-SNAPSHOT-lambda-package.zip"))
                 .memorySize(512)
@@ -48,12 +62,12 @@ public class InfrastructureStack extends Stack {
                         "STOCKS_TABLE_NAME", stocksTableName,
                         "ACCESS_CONTROL_ALLOW_ORIGIN", "*",
                         "ACCESS_CONTROL_ALLOW_METHODS", "GET, POST, OPTIONS",
-                        "ACCESS_CONTROL_ALLOW_HEADERS", "Content-Type, Authorization"
+                        "ACCESS_CONTROL_ALLOW_HEADERS", "Content-Type, Authorization, If-None-Match"
                 ))
                 .build();
 
         Function getProductById = Function.Builder.create(this, "GetProductByIdLambda")
-                .runtime(Runtime.JAVA_17)
+                .runtime(Runtime.JAVA_21)
                 .handler("org.example.StreamLambdaHandler::handleRequest")
                 .code(Code.fromAsset("../product-service/target/product-service-1.0-SNAPSHOT-lambda-package.zip"))
                 .memorySize(512)
@@ -65,12 +79,12 @@ public class InfrastructureStack extends Stack {
                         "STOCKS_TABLE_NAME", stocksTableName,
                         "ACCESS_CONTROL_ALLOW_ORIGIN", "*",
                         "ACCESS_CONTROL_ALLOW_METHODS", "GET, POST, OPTIONS",
-                        "ACCESS_CONTROL_ALLOW_HEADERS", "Content-Type, Authorization"
+                        "ACCESS_CONTROL_ALLOW_HEADERS", "Content-Type, Authorization, If-None-Match"
                 ))
                 .build();
 
         Function createProduct = Function.Builder.create(this, "CreateProductLambda")
-                .runtime(Runtime.JAVA_17)
+                .runtime(Runtime.JAVA_21)
                 .handler("org.example.StreamLambdaHandler::handleRequest")
                 .code(Code.fromAsset("../product-service/target/product-service-1.0-SNAPSHOT-lambda-package.zip"))
                 .memorySize(512)
@@ -102,7 +116,7 @@ public class InfrastructureStack extends Stack {
         products.addCorsPreflight(CorsOptions.builder()
                 .allowOrigins(List.of("*"))
                 .allowMethods(List.of("GET", "POST", "OPTIONS")) // ✅ Разрешаем POST
-                .allowHeaders(List.of("Content-Type", "Authorization"))
+                .allowHeaders(List.of("Content-Type", "Authorization", "If-None-Match"))
                 .build());
 
         products.addMethod("GET", LambdaIntegration.Builder.create(getProductsList).build());
@@ -112,11 +126,109 @@ public class InfrastructureStack extends Stack {
         productById.addCorsPreflight(CorsOptions.builder()
                 .allowOrigins(List.of("*"))
                 .allowMethods(List.of("GET", "OPTIONS"))
-                .allowHeaders(List.of("Content-Type", "Authorization"))
+                .allowHeaders(List.of("Content-Type", "Authorization", "If-None-Match"))
                 .build());
 
         productById.addMethod("GET", LambdaIntegration.Builder.create(getProductById).build());
 
         products.addMethod("POST", LambdaIntegration.Builder.create(createProduct).build());
+
+        IResource bulk = products.addResource("bulk");
+
+        bulk.addCorsPreflight(CorsOptions.builder()
+                .allowOrigins(List.of("*"))
+                .allowMethods(List.of("POST", "OPTIONS"))
+                .allowHeaders(List.of("Content-Type", "Authorization"))
+                .build());
+
+        bulk.addMethod("POST", LambdaIntegration.Builder.create(createProduct).build());
+
+        IResource batchGet = products.addResource("batch-get");
+
+        batchGet.addCorsPreflight(CorsOptions.builder()
+                .allowOrigins(List.of("*"))
+                .allowMethods(List.of("POST", "OPTIONS"))
+                .allowHeaders(List.of("Content-Type", "Authorization"))
+                .build());
+
+        batchGet.addMethod("POST", LambdaIntegration.Builder.create(getProductById).build());
+
+        IResource search = products.addResource("search");
+
+        search.addCorsPreflight(CorsOptions.builder()
+                .allowOrigins(List.of("*"))
+                .allowMethods(List.of("GET", "OPTIONS"))
+                .allowHeaders(List.of("Content-Type", "Authorization", "If-None-Match"))
+                .build());
+
+        // индекс строится из полного чтения каталога, как у списка товаров
+        search.addMethod("GET", LambdaIntegration.Builder.create(getProductsList).build());
+
+        IResource reserve = productById.addResource("reserve");
+
+        reserve.addCorsPreflight(CorsOptions.builder()
+                .allowOrigins(List.of("*"))
+                .allowMethods(List.of("POST", "OPTIONS"))
+                .allowHeaders(List.of("Content-Type", "Authorization"))
+                .build());
+
+        // запись остатков — в той же лямбде, что и создание товаров
+        reserve.addMethod("POST", LambdaIntegration.Builder.create(createProduct).build());
+
+        IResource release = productById.addResource("release");
+
+        release.addCorsPreflight(CorsOptions.builder()
+                .allowOrigins(List.of("*"))
+                .allowMethods(List.of("POST", "OPTIONS"))
+                .allowHeaders(List.of("Content-Type", "Authorization"))
+                .build());
+
+        release.addMethod("POST", LambdaIntegration.Builder.create(createProduct).build());
+    }
+
+    /**
+     * Creates a global secondary index, projecting all attributes, on a table the stack does not own,
+     * and deletes it with the stack. The table is expected to use on-demand capacity.
+     */
+    private AwsCustomResource addGlobalSecondaryIndex(String id, String tableName, String indexName,
+                                                      String partitionKey, String partitionKeyType,
+                                                      String sortKey, String sortKeyType) {
+        String tableArn = Stack.of(this).formatArn(ArnComponents.builder()
+                .service("dynamodb")
+                .resource("table")
+                .resourceName(tableName)
+                .build());
+
+        AwsSdkCall create = AwsSdkCall.builder()
+                .service("DynamoDB")
+                .action("updateTable")
+                .parameters(Map.of(
+                        "TableName", tableName,
+                        "AttributeDefinitions", List.of(
+                                Map.of("AttributeName", partitionKey, "AttributeType", partitionKeyType),
+                                Map.of("AttributeName", sortKey, "AttributeType", sortKeyType)),
+                        "GlobalSecondaryIndexUpdates", List.of(Map.of("Create", Map.of(
+                                "IndexName", indexName,
+                                "KeySchema", List.of(
+                                        Map.of("AttributeName", partitionKey, "KeyType", "HASH"),
+                                        Map.of("AttributeName", sortKey, "KeyType", "RANGE")),
+                                "Projection", Map.of("ProjectionType", "ALL"))))))
+                .physicalResourceId(PhysicalResourceId.of(tableName + "/" + indexName))
+                .build();
+        AwsSdkCall delete = AwsSdkCall.builder()
+                .service("DynamoDB")
+                .action("updateTable")
+                .parameters(Map.of(
+                        "TableName", tableName,
+                        "GlobalSecondaryIndexUpdates", List.of(Map.of("Delete", Map.of("IndexName", indexName)))))
+                .build();
+
+        return AwsCustomResource.Builder.create(this, id)
+                .onCreate(create)
+                .onDelete(delete)
+                .policy(AwsCustomResourcePolicy.fromSdkCalls(SdkCallsPolicyOptions.builder()
+                        .resources(List.of(tableArn))
+                        .build()))
+                .build();
     }
 }
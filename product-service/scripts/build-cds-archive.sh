@@ -0,0 +1,26 @@
+#!/usr/bin/env bash
+# Adds an AppCDS archive (app-cds.jsa) to the Lambda package.
+#
+# The archive is recorded inside the Lambda Java 21 base image with the package unpacked at
+# /var/task, so the recorded class path matches the one the function runs with. Priming.main
+# drives a few requests through the handler to load the request path classes.
+#
+# Enable it on the function with
+#   JAVA_TOOL_OPTIONS=-XX:SharedArchiveFile=/var/task/app-cds.jsa -Xshare:auto
+# If the class path does not match, the JVM ignores the archive (check with -Xlog:cds).
+set -euo pipefail
+
+PACKAGE=$(realpath "${1:?usage: build-cds-archive.sh <lambda-package.zip>}")
+IMAGE=${LAMBDA_IMAGE:-public.ecr.aws/lambda/java:21}
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+
+unzip -q "$PACKAGE" -d "$WORK"
+docker run --rm -v "$WORK:/var/task" \
+    -e AWS_REGION="${AWS_REGION:-eu-central-1}" \
+    -e AWS_ACCESS_KEY_ID=priming -e AWS_SECRET_ACCESS_KEY=priming \
+    --entrypoint /bin/sh "$IMAGE" -c \
+    'java -XX:ArchiveClassesAtExit=/var/task/app-cds.jsa -cp "/var/task:/var/task/lib/*" org.example.Priming'
+
+(cd "$WORK" && zip -q "$PACKAGE" app-cds.jsa)
+echo "Added app-cds.jsa ($(du -h "$WORK/app-cds.jsa" | cut -f1)) to $PACKAGE"
@@ -0,0 +1,30 @@
+#!/usr/bin/env bash
+# Measures time to first response of StreamLambdaHandler in fresh JVMs, without and with
+# priming, and without and with a locally recorded AppCDS archive.
+#
+#   RUNS=5 PRODUCT_PATH=/products/<id> scripts/cold-start.sh
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+RUNS=${RUNS:-5}
+PRODUCT_PATH=${PRODUCT_PATH:-/products}
+
+mvn -q -B test-compile dependency:build-classpath \
+    -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+CP="target/classes:target/test-classes:$(cat target/test-classpath.txt)"
+
+run() {
+    local label=$1
+    shift
+    for _ in $(seq "$RUNS"); do
+        printf '%-16s ' "$label"
+        java "$@" -cp "$CP" org.example.ColdStartHarness "$PRODUCT_PATH"
+    done
+}
+
+run baseline
+run primed -Dpriming=true
+
+java -XX:ArchiveClassesAtExit=target/local-cds.jsa -cp "$CP" org.example.Priming > /dev/null 2>&1
+run appcds -XX:SharedArchiveFile=target/local-cds.jsa
+run appcds+primed -XX:SharedArchiveFile=target/local-cds.jsa -Dpriming=true
@@ -0,0 +1,62 @@
+#!/usr/bin/env bash
+# Compares requests/sec of GET /products/{productId} on the long-running server (mvn -Pcontainer)
+# with the Lambda path: StreamLambdaHandler on a JVM under the Lambda Runtime Interface Emulator,
+# which like a Lambda instance handles one invocation at a time. Both run against DynamoDB Local,
+# warm up for WARMUP and are then measured for DURATION; the server also at CONCURRENCY.
+#
+#   DURATION=30s CONCURRENCY=64 scripts/container-load-test.sh
+#
+# Needs Docker, hey (https://github.com/rakyll/hey) and aws-lambda-rie on the PATH.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+DURATION=${DURATION:-30s}
+WARMUP=${WARMUP:-10s}
+CONCURRENCY=${CONCURRENCY:-64}
+SERVER_PORT=${SERVER_PORT:-8080}
+RIE_PORT=${RIE_PORT:-9000}
+HANDLER=${HANDLER:-org.example.StreamLambdaHandler::handleRequest}
+PRODUCT_ID=load-1
+
+mvn -q -B -Pcontainer -DskipTests package
+# the runtime interface client, the Lambda JVM's main class, comes with the native profile
+mvn -q -B -Pnative compile dependency:build-classpath \
+    -Dmdep.outputFile=target/lambda-classpath.txt -Dmdep.includeScope=runtime
+LAMBDA_CP="target/classes:$(cat target/lambda-classpath.txt)"
+
+source scripts/dynamodb-local.sh
+pids=()
+cleanup() {
+    for pid in "${pids[@]}"; do kill "$pid" 2> /dev/null || true; done
+    [[ -n ${DYNAMODB_CONTAINER:-} ]] && docker stop "$DYNAMODB_CONTAINER" > /dev/null
+}
+trap cleanup EXIT
+start_dynamodb_local "$PRODUCT_ID"
+
+requests_per_second() {
+    hey "$@" | awk '/Requests\/sec/ { print $2 }'
+}
+
+wait_for() {
+    until curl -sf "$@" > /dev/null; do sleep 0.2; done
+}
+
+# long-running server
+PORT=$SERVER_PORT java -jar target/product-service-1.0-SNAPSHOT-server.jar > target/server.log 2>&1 &
+pids+=($!)
+url="http://localhost:$SERVER_PORT/products/$PRODUCT_ID"
+wait_for "$url"
+hey -z "$WARMUP" -c "$CONCURRENCY" "$url" > /dev/null
+printf 'server  c=1   %8s req/s\n' "$(requests_per_second -z "$DURATION" -c 1 "$url")"
+printf 'server  c=%-3s %8s req/s\n' "$CONCURRENCY" "$(requests_per_second -z "$DURATION" -c "$CONCURRENCY" "$url")"
+kill "${pids[0]}"
+
+# Lambda emulation: API Gateway proxy events through the handler
+event="{\"httpMethod\":\"GET\",\"path\":\"/products/$PRODUCT_ID\",\"resource\":\"/products/{productId}\",\"headers\":{\"Accept\":\"application/json\"},\"requestContext\":{\"requestId\":\"load\",\"stage\":\"test\",\"identity\":{\"sourceIp\":\"127.0.0.1\"}}}"
+invoke_url="http://localhost:$RIE_PORT/2015-03-31/functions/function/invocations"
+aws-lambda-rie --log-level error java -cp "$LAMBDA_CP" \
+    com.amazonaws.services.lambda.runtime.api.client.AWSLambda "$HANDLER" > target/rie.log 2>&1 &
+pids+=($!)
+wait_for -XPOST "$invoke_url" -d "$event"
+hey -z "$WARMUP" -c 1 -m POST -d "$event" "$invoke_url" > /dev/null
+printf 'lambda  c=1   %8s req/s\n' "$(requests_per_second -z "$DURATION" -c 1 -m POST -d "$event" "$invoke_url")"
@@ -0,0 +1,24 @@
+# Sourced by the local test scripts: starts DynamoDB Local in Docker on DYNAMODB_PORT, creates the
+# products and stocks tables and puts one product with the id given as first argument. Sets
+# DYNAMODB_ENDPOINT and dummy credentials, and DYNAMODB_CONTAINER for the caller to stop.
+
+start_dynamodb_local() {
+    local product_id=$1
+
+    export AWS_REGION=us-east-1 AWS_ACCESS_KEY_ID=local AWS_SECRET_ACCESS_KEY=local
+    export DYNAMODB_ENDPOINT=http://localhost:${DYNAMODB_PORT:-8000}
+
+    DYNAMODB_CONTAINER=$(docker run -d --rm -p "${DYNAMODB_PORT:-8000}:8000" amazon/dynamodb-local)
+
+    until aws dynamodb list-tables --endpoint-url "$DYNAMODB_ENDPOINT" > /dev/null 2>&1; do sleep 0.2; done
+    aws dynamodb create-table --endpoint-url "$DYNAMODB_ENDPOINT" --table-name products \
+        --attribute-definitions AttributeName=id,AttributeType=S --key-schema AttributeName=id,KeyType=HASH \
+        --billing-mode PAY_PER_REQUEST > /dev/null
+    aws dynamodb create-table --endpoint-url "$DYNAMODB_ENDPOINT" --table-name stocks \
+        --attribute-definitions AttributeName=product_id,AttributeType=S --key-schema AttributeName=product_id,KeyType=HASH \
+        --billing-mode PAY_PER_REQUEST > /dev/null
+    aws dynamodb put-item --endpoint-url "$DYNAMODB_ENDPOINT" --table-name products \
+        --item "{\"id\":{\"S\":\"$product_id\"},\"title\":{\"S\":\"Local\"},\"description\":{\"S\":\"local test product\"},\"price\":{\"N\":\"1\"}}"
+    aws dynamodb put-item --endpoint-url "$DYNAMODB_ENDPOINT" --table-name stocks \
+        --item "{\"product_id\":{\"S\":\"$product_id\"},\"count\":{\"N\":\"3\"}}"
+}
@@ -0,0 +1,26 @@
+#!/usr/bin/env bash
+# Compares two JMH JSON reports written by `mvn -Pjmh verify`: score and allocated bytes per
+# operation of every benchmark present in both, with the relative change, as tab-separated columns.
+#
+#   git stash && mvn -q -Pjmh -DskipTests verify && cp target/jmh-result.json /tmp/base.json && git stash pop
+#   mvn -q -Pjmh -DskipTests verify && scripts/jmh-compare.sh /tmp/base.json target/jmh-result.json
+set -euo pipefail
+
+if [[ $# -ne 2 ]]; then
+    echo "Usage: $0 <base.json> <head.json>" >&2
+    exit 1
+fi
+
+summary='map({
+    key: ((.benchmark | sub("^org\\.example\\."; "")) + ((.params // {}) | to_entries | map(" " + .key + "=" + .value) | join(""))),
+    value: {score: .primaryMetric.score, unit: .primaryMetric.scoreUnit,
+            alloc: (.secondaryMetrics["·gc.alloc.rate.norm"].score // .secondaryMetrics["gc.alloc.rate.norm"].score // 0)}
+}) | from_entries'
+
+jq -r -n --slurpfile base <(jq "$summary" "$1") --slurpfile head <(jq "$summary" "$2") '
+    def change(a; b): if a == 0 then "n/a" else (((b - a) / a * 1000 | round) / 10 | tostring) + "%" end;
+    ["benchmark", "base", "head", "change", "base B/op", "head B/op", "change"],
+    ($head[0] | to_entries[] | select($base[0][.key] != null) | .key as $k | $base[0][$k] as $b | .value as $h |
+        [$k, "\($b.score * 100 | round / 100) \($b.unit)", "\($h.score * 100 | round / 100) \($h.unit)", change($b.score; $h.score),
+         ($b.alloc | round | tostring), ($h.alloc | round | tostring), change($b.alloc; $h.alloc)])
+    | @tsv'
@@ -0,0 +1,41 @@
+#!/usr/bin/env bash
+# Starts the native executable built by `mvn -Pnative package` under the Lambda Runtime Interface
+# Emulator against DynamoDB Local, sends one API Gateway event and reports startup time and RSS.
+#
+#   HANDLER=org.example.RouterLambdaHandler::handleRequest scripts/native-smoke-test.sh
+#
+# Needs Docker and aws-lambda-rie on the PATH
+# (https://github.com/aws/aws-lambda-runtime-interface-emulator).
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+HANDLER=${HANDLER:-org.example.StreamLambdaHandler::handleRequest}
+RIE_PORT=${RIE_PORT:-9000}
+BINARY=target/product-service
+
+[[ -x $BINARY ]] || mvn -q -B -Pnative -DskipTests package
+
+source scripts/dynamodb-local.sh
+rie_pid=
+cleanup() {
+    [[ -n $rie_pid ]] && kill "$rie_pid" 2> /dev/null || true
+    [[ -n ${DYNAMODB_CONTAINER:-} ]] && docker stop "$DYNAMODB_CONTAINER" > /dev/null
+}
+trap cleanup EXIT
+start_dynamodb_local smoke-1
+
+event='{"httpMethod":"GET","path":"/products/smoke-1","resource":"/products/{productId}","headers":{"Accept":"application/json"},"requestContext":{"requestId":"smoke","stage":"test","identity":{"sourceIp":"127.0.0.1"}}}'
+
+start=$(date +%s%N)
+aws-lambda-rie --log-level error "$BINARY" "$HANDLER" &
+rie_pid=$!
+response=
+until response=$(curl -sf -XPOST "http://localhost:$RIE_PORT/2015-03-31/functions/function/invocations" -d "$event"); do
+    sleep 0.01
+done
+first_response_ms=$(( ($(date +%s%N) - start) / 1000000 ))
+
+echo "$response"
+echo "$response" | grep -q '"statusCode":200' || { echo "❌ unexpected response"; exit 1; }
+echo "⏱  first response after ${first_response_ms} ms"
+echo "📦 RSS $(ps -o rss= -C product-service | awk '{ sum += $1 } END { print sum }') KiB"
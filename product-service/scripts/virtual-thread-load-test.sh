@@ -0,0 +1,20 @@
+#!/usr/bin/env bash
+# Runs VirtualThreadLoadTest on the platform thread pool and on virtual threads, each in a fresh
+# JVM, for every client count in CLIENTS. Point it at DynamoDB Local with DYNAMODB_ENDPOINT (and
+# dummy AWS_* credentials) or at real tables via PRODUCTS_TABLE_NAME and STOCKS_TABLE_NAME.
+#
+#   CLIENTS="200 1000 5000" SECONDS_PER_RUN=30 DYNAMODB_MAX_IN_FLIGHT=200 scripts/virtual-thread-load-test.sh
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+CLIENTS=${CLIENTS:-"200 1000 5000"}
+SECONDS_PER_RUN=${SECONDS_PER_RUN:-30}
+
+mvn -q -B test-compile dependency:build-classpath \
+    -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+CP="target/classes:target/test-classes:$(cat target/test-classpath.txt)"
+
+for clients in $CLIENTS; do
+    VIRTUAL_THREADS_ENABLED=false java -cp "$CP" org.example.VirtualThreadLoadTest platform "$clients" "$SECONDS_PER_RUN"
+    VIRTUAL_THREADS_ENABLED=true java -cp "$CP" org.example.VirtualThreadLoadTest virtual "$clients" "$SECONDS_PER_RUN"
+done
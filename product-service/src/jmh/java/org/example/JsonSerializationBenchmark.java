@@ -0,0 +1,73 @@
+package org.example;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.example.model.ApiError;
+import org.example.model.Product;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the response bodies, with the configuration Spring MVC uses for its
+ * message converter. The output is discarded, so only the encoding itself is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    private static final TypeReference<List<Product>> PRODUCT_LIST = new TypeReference<>() {
+    };
+
+    private ObjectWriter productListWriter;
+    private ObjectWriter apiErrorWriter;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        productListWriter = objectMapper.writerFor(PRODUCT_LIST);
+        apiErrorWriter = objectMapper.writerFor(ApiError.class);
+    }
+
+    /**
+     * Kept separate from the benchmark state, so only {@link #productList} runs for every catalog size.
+     */
+    @State(Scope.Benchmark)
+    public static class Catalog {
+
+        @Param({"10", "1000", "100000", "1000000"})
+        public int catalogSize;
+
+        private List<Product> products;
+
+        @Setup
+        public void setUp() {
+            products = new ArrayList<>(catalogSize);
+            for (int i = 0; i < catalogSize; i++) {
+                products.add(new Product("product-" + i, "Product " + i, "Description of product " + i, i % 1000, i % 50));
+            }
+        }
+    }
+
+    @Benchmark
+    public void productList(Catalog catalog) throws IOException {
+        productListWriter.writeValue(OutputStream.nullOutputStream(), catalog.products);
+    }
+
+    @Benchmark
+    public void apiError() throws IOException {
+        apiErrorWriter.writeValue(OutputStream.nullOutputStream(),
+                new ApiError(HttpStatus.NOT_FOUND, "Product not found"));
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.controller;
+
+import org.example.model.ApiError;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CORS headers every response carries, including error responses: fetching them and
+ * attaching them to a response entity the way the controller does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CorsHeadersBenchmark {
+
+    private static final ApiError ERROR = new ApiError(HttpStatus.NOT_FOUND, "Product not found");
+
+    private ProductController controller;
+
+    @Setup
+    public void setUp() {
+        // header building never reaches the service
+        controller = new ProductController(null);
+    }
+
+    @Benchmark
+    public HttpHeaders getCorsHeaders() {
+        return controller.getCorsHeaders();
+    }
+
+    @Benchmark
+    public ResponseEntity<?> errorResponse() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).headers(controller.getCorsHeaders()).body(ERROR);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.example.model.Product;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns scanned DynamoDB items into {@link Product}s, the work {@link ProductService#getAllProducts()}
+ * does for every page once the items are in memory: mapping product items alone, and the full join
+ * that first builds the stock count map from the {@code BatchGetItem} results. The encode benchmarks
+ * compare items to JSON bytes through {@code Product} and Jackson with {@link ProductJsonCodec}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductMappingBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int catalogSize;
+
+    private List<Map<String, AttributeValue>> productItems;
+    private Map<String, Map<String, AttributeValue>> stockItems;
+    private Map<String, Integer> stockCounts;
+    private ObjectWriter productListWriter;
+    private ProductJsonCodec codec;
+
+    @Setup
+    public void setUp() {
+        productItems = new ArrayList<>(catalogSize);
+        stockItems = new HashMap<>(catalogSize * 2);
+        for (int i = 0; i < catalogSize; i++) {
+            String id = "product-" + i;
+            productItems.add(Map.of(
+                    "id", AttributeValue.builder().s(id).build(),
+                    "title", AttributeValue.builder().s("Product " + i).build(),
+                    "description", AttributeValue.builder().s("Description of product " + i).build(),
+                    "price", AttributeValue.builder().n(String.valueOf(i % 1000)).build()));
+            // every tenth product has no stock item and falls back to a count of 0
+            if (i % 10 != 0) {
+                stockItems.put(id, Map.of(
+                        "product_id", AttributeValue.builder().s(id).build(),
+                        "count", AttributeValue.builder().n(String.valueOf(i % 50)).build()));
+            }
+        }
+        stockCounts = ProductItems.toStockCounts(stockItems);
+        productListWriter = Jackson2ObjectMapperBuilder.json().build().writerFor(new TypeReference<List<Product>>() {
+        });
+        codec = new ProductJsonCodec(64 * 1024);
+    }
+
+    @Benchmark
+    public List<Product> toProducts() {
+        return ProductItems.toProducts(productItems, stockCounts);
+    }
+
+    @Benchmark
+    public List<Product> joinStocks() {
+        return ProductItems.toProducts(productItems, ProductItems.toStockCounts(stockItems));
+    }
+
+    /**
+     * Items to JSON bytes the way the list response used to be written: join, then Jackson.
+     */
+    @Benchmark
+    public void encodeWithJackson() throws IOException {
+        productListWriter.writeValue(OutputStream.nullOutputStream(),
+                ProductItems.toProducts(productItems, ProductItems.toStockCounts(stockItems)));
+    }
+
+    /**
+     * Items to JSON bytes with {@link ProductJsonCodec}, reusing its buffer across invocations.
+     */
+    @Benchmark
+    public void encodeWithCodec() throws IOException {
+        codec.startArray();
+        for (Map<String, AttributeValue> productItem : productItems) {
+            codec.writeProduct(productItem, stockItems.get(productItem.get("id").s()));
+        }
+        codec.endArray();
+        codec.flushTo(OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of {@link ProductSearchIndex} over synthetic catalogs whose words follow a Zipf
+ * distribution, so that some terms match a large part of the catalog and most match a few products:
+ * a rare term, a common term and a query of both. The setup also prints how long the index took to
+ * build and how much heap it retains, measured around a full GC.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ProductSearchBenchmark {
+
+    private static final int VOCABULARY_SIZE = 50_000;
+    private static final int LIMIT = 20;
+
+    @Param({"10000", "1000000"})
+    public int catalogSize;
+
+    private ProductSearchIndex index;
+    private String[] vocabulary;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        vocabulary = new String[VOCABULARY_SIZE];
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            vocabulary[i] = word(random);
+        }
+        double[] cumulative = new double[VOCABULARY_SIZE];
+        double sum = 0;
+        for (int rank = 0; rank < VOCABULARY_SIZE; rank++) {
+            sum += 1.0 / (rank + 1);
+            cumulative[rank] = sum;
+        }
+
+        List<Product> products = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            products.add(new Product("product-" + i,
+                    text(random, cumulative, 3 + random.nextInt(4)),
+                    text(random, cumulative, 10 + random.nextInt(21)),
+                    random.nextInt(10_000), random.nextInt(100)));
+        }
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long before = memory.getHeapMemoryUsage().getUsed();
+        long start = System.nanoTime();
+        index = new ProductSearchIndex(catalogSize);
+        index.addAll(products);
+        index.trimToSize();
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        // the products are retained by the index too, so the difference is what the index adds
+        products = null;
+        System.gc();
+        long after = memory.getHeapMemoryUsage().getUsed();
+        System.out.printf("%nIndex of %d products, %d tokens: built in %d ms, %d MB retained on top of the products%n",
+                index.size(), index.tokenCount(), buildMillis, (after - before) / (1024 * 1024));
+    }
+
+    @Benchmark
+    public List<ProductSearchIndex.Hit> rareTerm() {
+        return index.search(vocabulary[VOCABULARY_SIZE / 2], LIMIT);
+    }
+
+    @Benchmark
+    public List<ProductSearchIndex.Hit> commonTerm() {
+        return index.search(vocabulary[0], LIMIT);
+    }
+
+    @Benchmark
+    public List<ProductSearchIndex.Hit> rareAndCommonTerms() {
+        return index.search(vocabulary[VOCABULARY_SIZE / 2] + " " + vocabulary[10], LIMIT);
+    }
+
+    private String text(Random random, double[] cumulative, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[cumulative.length - 1]);
+            text.append(vocabulary[rank < 0 ? -rank - 1 : rank]);
+        }
+        return text.toString();
+    }
+
+    private static String word(Random random) {
+        char[] letters = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+}
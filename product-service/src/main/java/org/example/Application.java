@@ -2,9 +2,16 @@ package org.example;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.Ordered;
 
 import org.example.controller.ProductController;
+import org.example.cors.CorsPolicy;
+import org.example.cors.CorsPreflightFilter;
+import org.example.metrics.Metrics;
+import org.example.metrics.MetricsFilter;
 
 
 @SpringBootApplication
@@ -15,5 +22,23 @@ public class Application {
 
     public static void main(String[] args) {
         SpringApplication.run(Application.class, args);
+        Metrics.shared().scheduleFlushes();
+    }
+
+    @Bean
+    public FilterRegistrationBean<CorsPreflightFilter> corsPreflightFilter() {
+        FilterRegistrationBean<CorsPreflightFilter> registration =
+                new FilterRegistrationBean<>(new CorsPreflightFilter(CorsPolicy.shared()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<MetricsFilter> metricsFilter() {
+        // ahead of the CORS filter, so that preflights are measured too
+        FilterRegistrationBean<MetricsFilter> registration =
+                new FilterRegistrationBean<>(new MetricsFilter(Metrics.shared()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
     }
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package org.example;
+
+import com.amazonaws.serverless.proxy.internal.LambdaContainerHandler;
+import com.amazonaws.serverless.proxy.model.ApiGatewayRequestIdentity;
+import com.amazonaws.serverless.proxy.model.AwsProxyRequest;
+import com.amazonaws.serverless.proxy.model.AwsProxyRequestContext;
+import com.amazonaws.serverless.proxy.model.Headers;
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import org.example.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sends a few synthetic API Gateway events through a handler so that the classes, Jackson
+ * serializers, controller mappings and the DynamoDB client are loaded and initialized before the
+ * first real request: before a SnapStart checkpoint, during init when {@code PRIMING_ENABLED=true},
+ * and as the training run that records the AppCDS archive.
+ */
+public final class Priming {
+
+    private static final Logger logger = LoggerFactory.getLogger(Priming.class);
+
+    // never a real product id, so the lookup below reads DynamoDB but caches nothing
+    private static final String PRIMING_PRODUCT_ID = "00000000-0000-0000-0000-priming00000";
+
+    private Priming() {
+    }
+
+    public static void prime(RequestStreamHandler handler) {
+        Metrics.withoutRecording(() -> invokeAll(handler));
+    }
+
+    private static void invokeAll(RequestStreamHandler handler) {
+        long start = System.nanoTime();
+
+        // routing, request and response JSON, validation and ApiError rendering, without DynamoDB
+        invoke(handler, "OPTIONS", "/products", null);
+        invoke(handler, "POST", "/products", "{\"title\":\"\",\"description\":\"\",\"price\":0,\"count\":0}");
+        invoke(handler, "POST", "/products/batch-get", "{\"ids\":[]}");
+        // credentials, the HTTP client and the DynamoDB marshallers
+        invoke(handler, "GET", "/products/" + PRIMING_PRODUCT_ID, null);
+
+        logger.info("Primed request path in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void invoke(RequestStreamHandler handler, String method, String path, String body) {
+        AwsProxyRequest request = new AwsProxyRequest();
+        request.setHttpMethod(method);
+        request.setPath(path);
+        request.setResource("/{proxy+}");
+        request.setBody(body);
+        Headers headers = new Headers();
+        headers.putSingle("Accept", "application/json");
+        if (body != null) {
+            headers.putSingle("Content-Type", "application/json");
+        }
+        request.setMultiValueHeaders(headers);
+        AwsProxyRequestContext requestContext = new AwsProxyRequestContext();
+        requestContext.setIdentity(new ApiGatewayRequestIdentity());
+        requestContext.setHttpMethod(method);
+        requestContext.setStage("priming");
+        request.setRequestContext(requestContext);
+
+        try {
+            byte[] event = LambdaContainerHandler.getObjectMapper().writeValueAsBytes(request);
+            handler.handleRequest(new ByteArrayInputStream(event), new ByteArrayOutputStream(), new PrimingContext());
+        } catch (Exception e) {
+            logger.warn("Priming request {} {} failed: {}", method, path, e.getMessage());
+        }
+    }
+
+    /**
+     * Training run for the AppCDS archive, see {@code scripts/build-cds-archive.sh}.
+     */
+    public static void main(String[] args) {
+        prime(new StreamLambdaHandler());
+        System.exit(0);
+    }
+
+    private static final class PrimingContext implements Context {
+
+        @Override
+        public String getAwsRequestId() {
+            return "priming";
+        }
+
+        @Override
+        public String getLogGroupName() {
+            return "priming";
+        }
+
+        @Override
+        public String getLogStreamName() {
+            return "priming";
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "priming";
+        }
+
+        @Override
+        public String getFunctionVersion() {
+            return "$LATEST";
+        }
+
+        @Override
+        public String getInvokedFunctionArn() {
+            return "priming";
+        }
+
+        @Override
+        public CognitoIdentity getIdentity() {
+            return null;
+        }
+
+        @Override
+        public ClientContext getClientContext() {
+            return null;
+        }
+
+        @Override
+        public int getRemainingTimeInMillis() {
+            return 30_000;
+        }
+
+        @Override
+        public int getMemoryLimitInMB() {
+            return 512;
+        }
+
+        @Override
+        public LambdaLogger getLogger() {
+            return new LambdaLogger() {
+                @Override
+                public void log(String message) {
+                    logger.debug(message);
+                }
+
+                @Override
+                public void log(byte[] message) {
+                    logger.debug(new String(message, StandardCharsets.UTF_8));
+                }
+            };
+        }
+    }
+}
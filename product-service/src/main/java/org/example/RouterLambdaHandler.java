@@ -0,0 +1,278 @@
+package org.example;
+
+import com.amazonaws.serverless.proxy.internal.LambdaContainerHandler;
+import com.amazonaws.serverless.proxy.model.AwsProxyRequest;
+import com.amazonaws.serverless.proxy.model.AwsProxyResponse;
+import com.amazonaws.serverless.proxy.model.Headers;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.crac.Core;
+import org.crac.Resource;
+import org.example.controller.ProductController;
+import org.example.cors.CorsPolicy;
+import org.example.metrics.Metrics;
+import org.example.model.BatchGetRequest;
+import org.example.model.Product;
+import org.example.model.StockReservationRequest;
+import org.example.service.ProductService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Alternative to {@link StreamLambdaHandler} without the Spring application context, servlet
+ * emulation and {@code DispatcherServlet}: a fixed router that calls {@link ProductController}'s
+ * handler methods directly and renders their {@link ResponseEntity} the way Spring MVC does,
+ * with the same Jackson configuration. Select it with
+ * {@code Handler: org.example.RouterLambdaHandler::handleRequest}.
+ */
+public class RouterLambdaHandler implements RequestStreamHandler {
+
+    private static final String PRODUCTS = "/products";
+    private static final TypeReference<List<Product>> PRODUCT_LIST = new TypeReference<>() {
+    };
+
+    // the same configuration Spring MVC uses for its Jackson message converter
+    private static final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private static final ProductController controller = new ProductController(new ProductService());
+    private static final Metrics metrics = Metrics.shared();
+    private static volatile boolean primed;
+
+    // CRaC only keeps weak references to registered resources
+    private static final Resource primingResource = new Resource() {
+        @Override
+        public void beforeCheckpoint(org.crac.Context<? extends Resource> context) {
+            if (!primed) {
+                Priming.prime(new RouterLambdaHandler());
+                primed = true;
+            }
+        }
+
+        @Override
+        public void afterRestore(org.crac.Context<? extends Resource> context) {
+        }
+    };
+
+    static {
+        Core.getGlobalContext().register(primingResource);
+        if (Boolean.parseBoolean(System.getenv("PRIMING_ENABLED"))) {
+            Priming.prime(new RouterLambdaHandler());
+            primed = true;
+        }
+    }
+
+    @Override
+    public void handleRequest(InputStream inputStream, OutputStream outputStream, Context context)
+            throws IOException {
+        ObjectMapper eventMapper = LambdaContainerHandler.getObjectMapper();
+        AwsProxyRequest request = eventMapper.readValue(inputStream, AwsProxyRequest.class);
+
+        long start = System.nanoTime();
+        AwsProxyResponse response;
+        try {
+            response = route(request);
+        } catch (Exception e) {
+            response = render(controller.handleGlobalException(e));
+        }
+        if (metrics.isEnabled()) {
+            metrics.recordRequest(routeTemplate(request), response.getStatusCode(), System.nanoTime() - start,
+                    utf8Length(body(request)), utf8Length(response.getBody()));
+        }
+        eventMapper.writeValue(outputStream, response);
+        // the instance may be frozen once this returns, so what is due is written now
+        metrics.flushIfDue();
+    }
+
+    /**
+     * The route {@link #route} takes, in the form Spring MVC reports to {@link org.example.metrics.MetricsFilter}.
+     */
+    private static String routeTemplate(AwsProxyRequest request) {
+        String method = request.getHttpMethod();
+        String path = request.getPath();
+        if ("OPTIONS".equals(method)) {
+            return Metrics.PREFLIGHT_ROUTE;
+        }
+        if (PRODUCTS.equals(path)) {
+            return method + " " + PRODUCTS;
+        }
+        String child = path == null || !path.startsWith(PRODUCTS + "/") ? "" : path.substring(PRODUCTS.length() + 1);
+        int slash = child.indexOf('/');
+        if (slash > 0) {
+            String action = child.substring(slash + 1);
+            return action.equals("reserve") || action.equals("release")
+                    ? method + " " + PRODUCTS + "/{productId}/" + action
+                    : method + " " + Metrics.UNMATCHED_PATH;
+        }
+        return switch (child) {
+            case "" -> method + " " + Metrics.UNMATCHED_PATH;
+            case "batch-get", "search", "bulk" -> method + " " + PRODUCTS + "/" + child;
+            default -> method + " " + PRODUCTS + "/{productId}";
+        };
+    }
+
+    private static long utf8Length(String text) {
+        if (text == null) {
+            return 0;
+        }
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                // with the low surrogate that follows
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private AwsProxyResponse route(AwsProxyRequest request) throws IOException {
+        String method = request.getHttpMethod();
+        String path = request.getPath();
+
+        // answered like CorsPreflightFilter does for the Spring handler
+        if ("OPTIONS".equals(method)) {
+            return new AwsProxyResponse(HttpStatus.OK.value(), headers(CorsPolicy.shared().preflightHeaders()), null);
+        }
+        if (PRODUCTS.equals(path)) {
+            return switch (method) {
+                case "GET" -> getProducts(request);
+                case "POST" -> render(controller.createProduct(objectMapper.readValue(body(request), Product.class)));
+                default -> status(HttpStatus.METHOD_NOT_ALLOWED);
+            };
+        }
+        if (path == null || !path.startsWith(PRODUCTS + "/")) {
+            return status(HttpStatus.NOT_FOUND);
+        }
+
+        String child = path.substring(PRODUCTS.length() + 1);
+        int slash = child.indexOf('/');
+        if (slash >= 0) {
+            return routeProductAction(request, child.substring(0, slash), child.substring(slash + 1));
+        }
+        if (child.isEmpty()) {
+            return status(HttpStatus.NOT_FOUND);
+        }
+        return switch (child) {
+            case "batch-get" -> "POST".equals(method)
+                    ? render(controller.getProductsByIds(objectMapper.readValue(body(request), BatchGetRequest.class)))
+                    : status(HttpStatus.METHOD_NOT_ALLOWED);
+            case "search" -> "GET".equals(method)
+                    ? render(controller.searchProducts(queryParameter(request, "q"), integer(queryParameter(request, "limit")),
+                            header(request, HttpHeaders.IF_NONE_MATCH)))
+                    : status(HttpStatus.METHOD_NOT_ALLOWED);
+            case "bulk" -> "POST".equals(method)
+                    ? render(controller.createProducts(objectMapper.readValue(body(request), PRODUCT_LIST)))
+                    : status(HttpStatus.METHOD_NOT_ALLOWED);
+            default -> "GET".equals(method)
+                    ? render(controller.getProductById(child, header(request, HttpHeaders.IF_NONE_MATCH)))
+                    : status(HttpStatus.METHOD_NOT_ALLOWED);
+        };
+    }
+
+    /**
+     * {@code /products/{productId}/reserve} and {@code /release}.
+     */
+    private AwsProxyResponse routeProductAction(AwsProxyRequest request, String productId, String action)
+            throws IOException {
+        if (productId.isEmpty() || !(action.equals("reserve") || action.equals("release"))) {
+            return status(HttpStatus.NOT_FOUND);
+        }
+        if (!"POST".equals(request.getHttpMethod())) {
+            return status(HttpStatus.METHOD_NOT_ALLOWED);
+        }
+        StockReservationRequest body = objectMapper.readValue(body(request), StockReservationRequest.class);
+        return render(action.equals("reserve")
+                ? controller.reserveStock(productId, body)
+                : controller.releaseStock(productId, body));
+    }
+
+    private AwsProxyResponse getProducts(AwsProxyRequest request) throws IOException {
+        String limit = queryParameter(request, "limit");
+        String cursor = queryParameter(request, "cursor");
+        String minPrice = queryParameter(request, "minPrice");
+        String maxPrice = queryParameter(request, "maxPrice");
+        String titlePrefix = queryParameter(request, "titlePrefix");
+        String sort = queryParameter(request, "sort");
+        boolean wholeCatalog = limit == null && cursor == null
+                && minPrice == null && maxPrice == null && titlePrefix == null && sort == null;
+        if (wholeCatalog && controller.isStreamingEnabled()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+            controller.writeProducts(body);
+            Headers headers = headers(controller.getCorsHeaders());
+            headers.putSingle(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+            if (!controller.getProductListCacheControl().isEmpty()) {
+                headers.putSingle(HttpHeaders.CACHE_CONTROL, controller.getProductListCacheControl());
+            }
+            return new AwsProxyResponse(HttpStatus.OK.value(), headers, body.toString(StandardCharsets.UTF_8));
+        }
+        return render(controller.getProducts(integer(limit), cursor, integer(minPrice), integer(maxPrice), titlePrefix,
+                sort, header(request, HttpHeaders.IF_NONE_MATCH), null));
+    }
+
+    private static Integer integer(String value) {
+        return value == null ? null : Integer.valueOf(value);
+    }
+
+    private AwsProxyResponse render(ResponseEntity<?> entity) throws IOException {
+        Headers headers = headers(entity.getHeaders());
+        String body = null;
+        if (entity.getBody() != null) {
+            headers.putSingle(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+            body = objectMapper.writeValueAsString(entity.getBody());
+        }
+        return new AwsProxyResponse(entity.getStatusCode().value(), headers, body);
+    }
+
+    private static AwsProxyResponse status(HttpStatus status) {
+        return new AwsProxyResponse(status.value(), new Headers(), null);
+    }
+
+    private static Headers headers(HttpHeaders source) {
+        Headers headers = new Headers();
+        source.forEach((name, values) -> values.forEach(value -> headers.add(name, value)));
+        return headers;
+    }
+
+    private static String body(AwsProxyRequest request) {
+        if (request.getBody() == null) {
+            return "";
+        }
+        if (request.isBase64Encoded()) {
+            return new String(Base64.getDecoder().decode(request.getBody()), StandardCharsets.UTF_8);
+        }
+        return request.getBody();
+    }
+
+    private static String header(AwsProxyRequest request, String name) {
+        if (request.getMultiValueHeaders() == null) {
+            return null;
+        }
+        return request.getMultiValueHeaders().getFirst(name);
+    }
+
+    private static String queryParameter(AwsProxyRequest request, String name) {
+        if (request.getMultiValueQueryStringParameters() == null) {
+            return null;
+        }
+        return request.getMultiValueQueryStringParameters().getFirst(name);
+    }
+}
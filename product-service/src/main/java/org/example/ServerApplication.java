@@ -0,0 +1,19 @@
+package org.example;
+
+import org.example.metrics.Metrics;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+/**
+ * Runs the API as a long-lived server instead of inside Lambda: the embedded Jetty of the
+ * {@code container} build profile serves the same {@link Application} with the keep-alive, gzip
+ * and graceful shutdown settings of {@code application-container.properties}.
+ */
+public class ServerApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(Application.class)
+                .profiles("container")
+                .run(args);
+        Metrics.shared().scheduleFlushes();
+    }
+}
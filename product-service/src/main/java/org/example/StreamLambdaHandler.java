@@ -7,6 +7,9 @@ import com.amazonaws.serverless.proxy.model.AwsProxyResponse;
 import com.amazonaws.serverless.proxy.spring.SpringBootLambdaContainerHandler;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import org.crac.Core;
+import org.crac.Resource;
+import org.example.metrics.Metrics;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -15,6 +18,23 @@ import java.io.OutputStream;
 
 public class StreamLambdaHandler implements RequestStreamHandler {
     private static SpringBootLambdaContainerHandler<AwsProxyRequest, AwsProxyResponse> handler;
+    private static volatile boolean primed;
+
+    // CRaC only keeps weak references to registered resources
+    private static final Resource primingResource = new Resource() {
+        @Override
+        public void beforeCheckpoint(org.crac.Context<? extends Resource> context) {
+            if (!primed) {
+                Priming.prime(new StreamLambdaHandler());
+                primed = true;
+            }
+        }
+
+        @Override
+        public void afterRestore(org.crac.Context<? extends Resource> context) {
+        }
+    };
+
     static {
         try {
             handler = SpringBootLambdaContainerHandler.getAwsProxyHandler(Application.class);
@@ -23,11 +43,20 @@ public class StreamLambdaHandler implements RequestStreamHandler {
             e.printStackTrace();
             throw new RuntimeException("Could not initialize Spring Boot application", e);
         }
+
+        // with SnapStart the priming runs once before the snapshot is taken
+        Core.getGlobalContext().register(primingResource);
+        if (Boolean.parseBoolean(System.getenv("PRIMING_ENABLED"))) {
+            Priming.prime(new StreamLambdaHandler());
+            primed = true;
+        }
     }
 
     @Override
     public void handleRequest(InputStream inputStream, OutputStream outputStream, Context context)
             throws IOException {
         handler.proxyStream(inputStream, outputStream, context);
+        // the instance may be frozen once this returns, so what is due is written now
+        Metrics.shared().flushIfDue();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,118 @@
+package org.example.controller;
+
+import org.example.model.Product;
+import org.example.service.ProductFilter;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Entity tags of the product responses, computed from the products' fields instead of the
+ * serialized body, so a matching {@code If-None-Match} is answered without serializing anything.
+ * <p>
+ * A product's tag is a 64-bit FNV-1a hash of its fields. A page of products combines the hashes in
+ * order. The full list and filtered lists are not hashed at all: their tags are hashes of the
+ * catalog version and the filter, so they are known before the list is read. All tags are strong.
+ */
+final class ETags {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ETags() {
+    }
+
+    static String of(Product product) {
+        return strong(hash(product));
+    }
+
+    /**
+     * @param nextCursor the page's continuation token, part of the response
+     */
+    static String ofPage(List<Product> products, String nextCursor) {
+        long hash = FNV_OFFSET_BASIS;
+        for (Product product : products) {
+            hash = mix(hash ^ hash(product));
+        }
+        return strong(mix(hash ^ hash(nextCursor, FNV_OFFSET_BASIS)));
+    }
+
+    /**
+     * The tag of a list read at {@code catalogVersion}, see {@link org.example.service.ProductService#getCatalogVersion()}.
+     *
+     * @param filter the list's filter and order, {@code null} for the full list
+     */
+    static String ofCatalog(String catalogVersion, ProductFilter filter) {
+        long hash = hash(catalogVersion, FNV_OFFSET_BASIS);
+        if (filter != null) {
+            hash = hash(Objects.toString(filter.minPrice(), null), hash);
+            hash = hash(Objects.toString(filter.maxPrice(), null), hash);
+            hash = hash(filter.titlePrefix(), hash);
+            hash = hash(filter.sort() == null ? null : filter.sort().name(), hash);
+        }
+        return strong(mix(hash));
+    }
+
+    /**
+     * Whether an {@code If-None-Match} value, a list of tags or {@code *}, matches {@code etag}.
+     * Uses the weak comparison RFC 9110 prescribes for {@code If-None-Match}.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = opaqueTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || opaqueTag(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static long hash(Product product) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = hash(product.id(), hash);
+        hash = hash(product.title(), hash);
+        hash = hash(product.description(), hash);
+        hash = hash(product.price(), hash);
+        return mix(hash(product.count(), hash));
+    }
+
+    private static long hash(String value, long hash) {
+        if (value == null) {
+            return (hash ^ 0xFFFF) * FNV_PRIME;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        // separates the fields, so "ab" + "c" and "a" + "bc" differ
+        return (hash ^ 0xFFFE) * FNV_PRIME;
+    }
+
+    private static long hash(int value, long hash) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash = (hash ^ ((value >>> shift) & 0xFF)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    // the MurmurHash3 finalizer, so that sums of hashes stay well distributed
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static String strong(long hash) {
+        String hex = Long.toHexString(hash);
+        return "\"" + "0".repeat(16 - hex.length()) + hex + "\"";
+    }
+}
@@ -1,16 +1,35 @@
 package org.example.controller;
 
 
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.cors.CorsPolicy;
 import org.example.model.ApiError;
+import org.example.model.BatchGetRequest;
+import org.example.model.BulkCreateResult;
 import org.example.model.Product;
+import org.example.model.ProductPage;
+import org.example.model.StockReservation;
+import org.example.model.StockReservationRequest;
+import org.example.service.InsufficientStockException;
+import org.example.service.InvalidCursorException;
+import org.example.service.ProductFilter;
+import org.example.service.ProductJsonCodec;
 import org.example.service.ProductService;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.slf4j.Logger;
@@ -23,56 +42,247 @@ public class ProductController {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_LIMIT = 50;
+    private static final int MAX_PAGE_LIMIT = 1000;
+    private static final int MAX_BATCH_GET_IDS = 100;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_BULK_CREATE_ITEMS = 2000;
+    // grows to the encoded size of the largest scan page (up to about 1 MB) and is reused for the others
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final String INVALID_PRODUCT_MESSAGE = "Invalid product data: title, price, and count are required";
+
+    private static final String DEFAULT_CACHE_CONTROL = "no-cache";
+
     private final ProductService productService;
+    private final boolean streamingEnabled;
+    private final HttpHeaders corsHeaders = CorsPolicy.shared().headers();
+    private final String productCacheControl;
+    private final String productListCacheControl;
 
     public ProductController(ProductService productService) {
         this.productService = productService;
+        this.streamingEnabled = Boolean.parseBoolean(System.getenv("PRODUCTS_STREAMING_ENABLED"));
+        this.productCacheControl = Optional.ofNullable(System.getenv("CACHE_CONTROL_PRODUCT_BY_ID")).orElse(DEFAULT_CACHE_CONTROL);
+        this.productListCacheControl = Optional.ofNullable(System.getenv("CACHE_CONTROL_PRODUCT_LIST")).orElse(DEFAULT_CACHE_CONTROL);
     }
 
-    private HttpHeaders getCorsHeaders() {
-        HttpHeaders headers = new HttpHeaders();
-        headers.add("Access-Control-Allow-Origin", "*");
-        headers.add("Access-Control-Allow-Methods", "OPTIONS, GET, POST, PUT, DELETE");
-        headers.add("Access-Control-Allow-Headers", "Content-Type, Authorization, X-Api-Key, X-Amz-Date, X-Amz-Security-Token");
-        headers.add("Access-Control-Allow-Credentials", "true");
-        return headers;
+    /**
+     * The shared, read-only CORS headers of {@link CorsPolicy#shared()}.
+     */
+    public HttpHeaders getCorsHeaders() {
+        return corsHeaders;
     }
 
+    /**
+     * The whole catalog, a page of it with {@code limit} and {@code cursor}, or the products matching
+     * {@code minPrice}, {@code maxPrice} and {@code titlePrefix} in {@code sort} order ({@code price} or
+     * {@code title}); filters do not combine with paging. Except for the streamed
+     * catalog, whose headers are sent before its products are read, responses carry an {@code ETag}
+     * and are answered with 304 Not Modified when it matches {@code If-None-Match}.
+     */
     @GetMapping
-    public ResponseEntity<List<Product>> getProducts() {
-        logger.info("GET /products called");
-        return ResponseEntity.ok().headers(getCorsHeaders()).body(productService.getAllProducts());
+    public ResponseEntity<?> getProducts(@RequestParam(required = false) Integer limit,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer minPrice,
+                                         @RequestParam(required = false) Integer maxPrice,
+                                         @RequestParam(required = false) String titlePrefix,
+                                         @RequestParam(required = false) String sort,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                         HttpServletResponse response) throws IOException {
+        logger.debug("GET /products called");
+        boolean filtered = minPrice != null || maxPrice != null || titlePrefix != null || sort != null;
+        if (filtered) {
+            if (limit != null || cursor != null) {
+                return badRequest("limit and cursor cannot be combined with minPrice, maxPrice, titlePrefix or sort");
+            }
+            return findProducts(minPrice, maxPrice, titlePrefix, sort, ifNoneMatch);
+        }
+        if (limit != null || cursor != null) {
+            return getProductsPage(limit == null ? DEFAULT_PAGE_LIMIT : limit, cursor, ifNoneMatch);
+        }
+        if (streamingEnabled) {
+            streamProducts(response);
+            // the body has already been written, there is nothing left for Spring to render
+            return null;
+        }
+        // checked before reading, so a 304 costs no DynamoDB read
+        String etag = ETags.ofCatalog(productService.getCatalogVersion(), null);
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag, productListCacheControl);
+        }
+        List<Product> products = productService.getAllProducts();
+        return cacheable(ResponseEntity.ok(), etag, productListCacheControl).body(products);
+    }
+
+    private ResponseEntity<?> findProducts(Integer minPrice, Integer maxPrice, String titlePrefix, String sort,
+                                           String ifNoneMatch) {
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            return badRequest("minPrice must not be greater than maxPrice");
+        }
+        ProductFilter.Sort order;
+        try {
+            order = sort == null ? null : ProductFilter.Sort.parse(sort);
+        } catch (IllegalArgumentException e) {
+            return badRequest("sort must be price or title");
+        }
+
+        ProductFilter filter = new ProductFilter(minPrice, maxPrice, titlePrefix, order);
+        String etag = ETags.ofCatalog(productService.getCatalogVersion(), filter);
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag, productListCacheControl);
+        }
+        List<Product> products = productService.findProducts(filter);
+        return cacheable(ResponseEntity.ok(), etag, productListCacheControl).body(products);
+    }
+
+    private ResponseEntity<?> badRequest(String message) {
+        return ResponseEntity.badRequest()
+                .headers(getCorsHeaders())
+                .body(new ApiError(HttpStatus.BAD_REQUEST, message));
+    }
+
+    private ResponseEntity<?> getProductsPage(int limit, String cursor, String ifNoneMatch) {
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            return ResponseEntity.badRequest()
+                    .headers(getCorsHeaders())
+                    .body(new ApiError(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_LIMIT));
+        }
+
+        ProductPage page;
+        try {
+            page = productService.getProductsPage(limit, cursor);
+        } catch (InvalidCursorException e) {
+            return ResponseEntity.badRequest()
+                    .headers(getCorsHeaders())
+                    .body(new ApiError(HttpStatus.BAD_REQUEST, "Invalid cursor"));
+        }
+
+        String etag = ETags.ofPage(page.items(), page.nextCursor());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag, productListCacheControl);
+        }
+        ResponseEntity.BodyBuilder response = cacheable(ResponseEntity.ok(), etag, productListCacheControl);
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+
+    private void streamProducts(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        getCorsHeaders().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        if (!productListCacheControl.isEmpty()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, productListCacheControl);
+        }
+        writeProducts(response.getOutputStream());
+    }
+
+    public boolean isStreamingEnabled() {
+        return streamingEnabled;
+    }
+
+    public String getProductListCacheControl() {
+        return productListCacheControl;
+    }
+
+    /**
+     * Writes the product list as a JSON array page by page, straight from the scanned items with
+     * {@link ProductJsonCodec}, so the response never holds more than one page of encoded products.
+     * Closes {@code outputStream}.
+     */
+    public void writeProducts(OutputStream outputStream) throws IOException {
+        try (outputStream) {
+            ProductJsonCodec codec = new ProductJsonCodec(STREAM_BUFFER_SIZE);
+            codec.startArray();
+            productService.forEachItemPage((productItems, stockItems) -> {
+                try {
+                    for (Map<String, AttributeValue> productItem : productItems) {
+                        codec.writeProduct(productItem, stockItems.get(productItem.get("id").s()));
+                    }
+                    codec.flushTo(outputStream);
+                    outputStream.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            codec.endArray();
+            codec.flushTo(outputStream);
+        }
+    }
+
+    /**
+     * Products whose title or description contains any of the words of {@code q}, best matches first.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchProducts(@RequestParam(required = false) String q,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        logger.debug("GET /products/search called");
+        if (q == null || q.isBlank()) {
+            return badRequest("q is required");
+        }
+        int maxResults = limit == null ? DEFAULT_SEARCH_LIMIT : limit;
+        if (maxResults < 1 || maxResults > MAX_SEARCH_LIMIT) {
+            return badRequest("limit must be between 1 and " + MAX_SEARCH_LIMIT);
+        }
+
+        List<Product> products = productService.searchProducts(q, maxResults);
+        String etag = ETags.ofPage(products, null);
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag, productListCacheControl);
+        }
+        return cacheable(ResponseEntity.ok(), etag, productListCacheControl).body(products);
     }
 
     @GetMapping("/{productId}")
-    public ResponseEntity<?> getProductById(@PathVariable String productId) {
-        logger.info("GET /products/{} called", productId);
+    public ResponseEntity<?> getProductById(@PathVariable String productId,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        logger.debug("GET /products/{} called", productId);
         Optional<Product> product = productService.getProductById(productId);
 
         if (product.isPresent()) {
-            logger.info("POST /products called with data: {}", product);
-            return ResponseEntity.ok().headers(getCorsHeaders()).body(product);
+            String etag = ETags.of(product.get());
+            if (ETags.matches(ifNoneMatch, etag)) {
+                return notModified(etag, productCacheControl);
+            }
+            return cacheable(ResponseEntity.ok(), etag, productCacheControl).body(product);
         } else {
             ApiError error = new ApiError(HttpStatus.NOT_FOUND, "Product with ID " + productId + " not found");
             return ResponseEntity.status(HttpStatus.NOT_FOUND).headers(getCorsHeaders()).body(error);
         }
     }
 
+    @PostMapping("/batch-get")
+    public ResponseEntity<?> getProductsByIds(@RequestBody BatchGetRequest request) {
+        logger.debug("POST /products/batch-get called");
+        List<String> ids = request.ids();
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_BATCH_GET_IDS ||
+            ids.stream().anyMatch(id -> id == null || id.isBlank())) {
+
+            return ResponseEntity.badRequest()
+                    .headers(getCorsHeaders())
+                    .body(new ApiError(HttpStatus.BAD_REQUEST, "Invalid request: between 1 and " + MAX_BATCH_GET_IDS + " non-empty ids are required"));
+        }
+
+        return ResponseEntity.ok().headers(getCorsHeaders()).body(productService.getProductsByIds(ids));
+    }
+
     @RequestMapping(method = RequestMethod.OPTIONS)
     public ResponseEntity<?> handleOptions() {
-        return ResponseEntity.ok().headers(getCorsHeaders()).build();
+        return ResponseEntity.ok().headers(CorsPolicy.shared().preflightHeaders()).build();
     }
 
 
     @PostMapping
     public ResponseEntity<?> createProduct(@RequestBody Product product) {
-        logger.info("POST /products called with data: {}", product);
-        if (product.title() == null || product.title().isEmpty() ||
-            product.price() <= 0 || product.count() < 0) {
-
+        logger.debug("POST /products called");
+        if (!isValid(product)) {
             return ResponseEntity.badRequest()
                     .headers(getCorsHeaders())
-                    .body(new ApiError(HttpStatus.BAD_REQUEST, "Invalid product data: title, price, and count are required"));
+                    .body(new ApiError(HttpStatus.BAD_REQUEST, INVALID_PRODUCT_MESSAGE));
         }
 
         Product createdProduct = productService.createProduct(
@@ -84,6 +294,108 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).headers(getCorsHeaders()).body(createdProduct);
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<?> createProducts(@RequestBody List<Product> products) {
+        logger.debug("POST /products/bulk called with {} products", products == null ? 0 : products.size());
+        if (products == null || products.isEmpty() || products.size() > MAX_BULK_CREATE_ITEMS) {
+            return ResponseEntity.badRequest()
+                    .headers(getCorsHeaders())
+                    .body(new ApiError(HttpStatus.BAD_REQUEST, "Invalid request: between 1 and " + MAX_BULK_CREATE_ITEMS + " products are required"));
+        }
+
+        // invalid elements are answered right away, the valid ones are written by the service
+        BulkCreateResult[] results = new BulkCreateResult[products.size()];
+        List<Product> validProducts = new ArrayList<>(products.size());
+        List<Integer> validIndexes = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            if (isValid(products.get(i))) {
+                validProducts.add(products.get(i));
+                validIndexes.add(i);
+            } else {
+                results[i] = new BulkCreateResult(i, HttpStatus.BAD_REQUEST.value(), null, INVALID_PRODUCT_MESSAGE);
+            }
+        }
+        if (!validProducts.isEmpty()) {
+            for (BulkCreateResult result : productService.createProducts(validProducts)) {
+                int index = validIndexes.get(result.index());
+                results[index] = new BulkCreateResult(index, result.status(), result.product(), result.message());
+            }
+        }
+
+        boolean allCreated = Arrays.stream(results).allMatch(result -> result.status() == HttpStatus.CREATED.value());
+        return ResponseEntity.status(allCreated ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS)
+                .headers(getCorsHeaders())
+                .body(Arrays.asList(results));
+    }
+
+    /**
+     * Takes {@code quantity} items of the product's stock; 409 Conflict when fewer are in stock.
+     */
+    @PostMapping("/{productId}/reserve")
+    public ResponseEntity<?> reserveStock(@PathVariable String productId, @RequestBody StockReservationRequest request) {
+        logger.debug("POST /products/{}/reserve called", productId);
+        if (request == null || request.quantity() == null || request.quantity() < 1) {
+            return badRequest("quantity must be at least 1");
+        }
+
+        try {
+            return stockChanged(productId, request.quantity(), productService.reserveStock(productId, request.quantity()));
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .headers(getCorsHeaders())
+                    .body(new ApiError(HttpStatus.CONFLICT, "Insufficient stock: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Returns {@code quantity} items to the product's stock; 202 Accepted when the release is only
+     * buffered for a later write.
+     */
+    @PostMapping("/{productId}/release")
+    public ResponseEntity<?> releaseStock(@PathVariable String productId, @RequestBody StockReservationRequest request) {
+        logger.debug("POST /products/{}/release called", productId);
+        if (request == null || request.quantity() == null || request.quantity() < 1) {
+            return badRequest("quantity must be at least 1");
+        }
+
+        boolean found = productService.releaseStock(productId, request.quantity());
+        if (productService.isStockWriteBehindEnabled()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .headers(getCorsHeaders())
+                    .body(new StockReservation(productId, request.quantity()));
+        }
+        return stockChanged(productId, request.quantity(), found);
+    }
+
+    private ResponseEntity<?> stockChanged(String productId, int quantity, boolean found) {
+        if (!found) {
+            ApiError error = new ApiError(HttpStatus.NOT_FOUND, "Product with ID " + productId + " not found");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).headers(getCorsHeaders()).body(error);
+        }
+        return ResponseEntity.ok().headers(getCorsHeaders()).body(new StockReservation(productId, quantity));
+    }
+
+    /**
+     * Adds the CORS headers, {@code etag} and {@code cacheControl} (unless empty) to {@code response}.
+     */
+    private ResponseEntity.BodyBuilder cacheable(ResponseEntity.BodyBuilder response, String etag, String cacheControl) {
+        response.headers(getCorsHeaders()).eTag(etag);
+        if (!cacheControl.isEmpty()) {
+            response.header(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        return response;
+    }
+
+    private ResponseEntity<?> notModified(String etag, String cacheControl) {
+        return cacheable(ResponseEntity.status(HttpStatus.NOT_MODIFIED), etag, cacheControl).build();
+    }
+
+    private static boolean isValid(Product product) {
+        return product != null &&
+               product.title() != null && !product.title().isEmpty() &&
+               product.price() > 0 && product.count() >= 0;
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiError> handleGlobalException(Exception ex) {
         logger.error("Error handling message: {}", ex.getMessage());
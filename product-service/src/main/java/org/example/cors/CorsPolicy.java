@@ -0,0 +1,91 @@
+package org.example.cors;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The CORS headers of every response, built once from the {@code ACCESS_CONTROL_*} environment
+ * variables the stack passes to the function. {@link #headers()} and {@link #preflightHeaders()}
+ * are read-only and shared by all requests, so attaching them costs no allocation beyond the
+ * response's own header map.
+ */
+public class CorsPolicy {
+
+    private static final String DEFAULT_ALLOW_METHODS = "OPTIONS, GET, POST, PUT, DELETE";
+    private static final String DEFAULT_ALLOW_HEADERS = "Content-Type, Authorization, X-Api-Key, X-Amz-Date, X-Amz-Security-Token, If-None-Match";
+    private static final String DEFAULT_EXPOSE_HEADERS = "X-Next-Cursor, ETag";
+
+    private final HttpHeaders headers;
+    private final HttpHeaders preflightHeaders;
+
+    /**
+     * @param maxAgeSeconds how long browsers may cache a preflight response, {@code null} to leave it to the browser
+     */
+    public CorsPolicy(String allowOrigin, String allowMethods, String allowHeaders,
+                      boolean allowCredentials, String exposeHeaders, Integer maxAgeSeconds) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, allowOrigin);
+        headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, allowMethods);
+        headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, allowHeaders);
+        if (allowCredentials) {
+            headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+        }
+        if (!exposeHeaders.isEmpty()) {
+            headers.set(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, exposeHeaders);
+        }
+        this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+
+        HttpHeaders preflightHeaders = new HttpHeaders();
+        preflightHeaders.putAll(headers);
+        if (maxAgeSeconds != null) {
+            preflightHeaders.set(HttpHeaders.ACCESS_CONTROL_MAX_AGE, String.valueOf(maxAgeSeconds));
+        }
+        this.preflightHeaders = HttpHeaders.readOnlyHttpHeaders(preflightHeaders);
+    }
+
+    /**
+     * The policy of this function instance, read from the environment on first use.
+     */
+    public static CorsPolicy shared() {
+        return Holder.INSTANCE;
+    }
+
+    static CorsPolicy fromEnv() {
+        return new CorsPolicy(
+                Optional.ofNullable(System.getenv("ACCESS_CONTROL_ALLOW_ORIGIN")).orElse("*"),
+                Optional.ofNullable(System.getenv("ACCESS_CONTROL_ALLOW_METHODS")).orElse(DEFAULT_ALLOW_METHODS),
+                Optional.ofNullable(System.getenv("ACCESS_CONTROL_ALLOW_HEADERS")).orElse(DEFAULT_ALLOW_HEADERS),
+                Optional.ofNullable(System.getenv("ACCESS_CONTROL_ALLOW_CREDENTIALS")).map(Boolean::parseBoolean).orElse(true),
+                Optional.ofNullable(System.getenv("ACCESS_CONTROL_EXPOSE_HEADERS")).orElse(DEFAULT_EXPOSE_HEADERS),
+                Optional.ofNullable(System.getenv("ACCESS_CONTROL_MAX_AGE")).map(Integer::valueOf).orElse(null));
+    }
+
+    /**
+     * Headers for regular responses.
+     */
+    public HttpHeaders headers() {
+        return headers;
+    }
+
+    /**
+     * Headers for the answer to an {@code OPTIONS} preflight request.
+     */
+    public HttpHeaders preflightHeaders() {
+        return preflightHeaders;
+    }
+
+    public void writePreflight(HttpServletResponse response) {
+        response.setStatus(HttpServletResponse.SC_OK);
+        for (Map.Entry<String, List<String>> header : preflightHeaders.entrySet()) {
+            response.setHeader(header.getKey(), header.getValue().get(0));
+        }
+    }
+
+    private static final class Holder {
+        static final CorsPolicy INSTANCE = fromEnv();
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.cors;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Answers {@code OPTIONS} requests from the {@link CorsPolicy} before they reach the
+ * {@code DispatcherServlet}, so preflights skip handler mapping, the controller and the service.
+ */
+public class CorsPreflightFilter extends OncePerRequestFilter {
+
+    private final CorsPolicy corsPolicy;
+
+    public CorsPreflightFilter(CorsPolicy corsPolicy) {
+        this.corsPolicy = corsPolicy;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (HttpMethod.OPTIONS.matches(request.getMethod())) {
+            corsPolicy.writePreflight(response);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
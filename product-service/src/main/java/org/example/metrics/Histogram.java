@@ -0,0 +1,95 @@
+package org.example.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of recorded values in exponential buckets, each {@link #RATIO} times wider than the
+ * one before, so values are kept to within about 7%. Count, sum, minimum and maximum are exact.
+ * Recording only increments adders; {@link #drain()} reads and resets them, and a value recorded
+ * while it runs lands in this drain or the next one.
+ */
+final class Histogram {
+
+    static final double RATIO = 1.15;
+    private static final double LOG_RATIO = Math.log(RATIO);
+    /** The most values an EMF metric may carry. */
+    static final int MAX_VALUES = 100;
+
+    private final double lowest;
+    private final LongAdder[] buckets;
+    private final DoubleAdder sum = new DoubleAdder();
+    private final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+    private final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+
+    /**
+     * @param lowest  values up to this land in the first bucket
+     * @param buckets the last bucket takes every value above {@code lowest * RATIO^(buckets - 1)}
+     */
+    Histogram(double lowest, int buckets) {
+        this.lowest = lowest;
+        this.buckets = new LongAdder[buckets];
+        for (int i = 0; i < buckets; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(double value) {
+        int bucket = value <= lowest ? 0 : Math.min(buckets.length - 1, 1 + (int) (Math.log(value / lowest) / LOG_RATIO));
+        buckets[bucket].increment();
+        sum.add(value);
+        min.accumulate(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * The values recorded since the last drain, or {@code null} if there were none.
+     */
+    Snapshot drain() {
+        List<Double> values = new ArrayList<>();
+        List<Long> counts = new ArrayList<>();
+        long count = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            long bucketCount = buckets[i].sumThenReset();
+            if (bucketCount > 0) {
+                values.add(i == 0 ? lowest : lowest * Math.pow(RATIO, i - 0.5));
+                counts.add(bucketCount);
+                count += bucketCount;
+            }
+        }
+        double drainedSum = sum.sumThenReset();
+        double drainedMin = min.getThenReset();
+        double drainedMax = max.getThenReset();
+        if (count == 0) {
+            return null;
+        }
+        mergeNeighbours(values, counts);
+        return new Snapshot(values, counts, count, drainedSum, drainedMin, drainedMax);
+    }
+
+    /**
+     * Merges pairs of neighbouring buckets, at their count-weighted mean, until there are at most
+     * {@link #MAX_VALUES}.
+     */
+    private static void mergeNeighbours(List<Double> values, List<Long> counts) {
+        while (values.size() > MAX_VALUES) {
+            for (int i = 0; i + 1 < values.size(); i++) {
+                long merged = counts.get(i) + counts.get(i + 1);
+                values.set(i, (values.get(i) * counts.get(i) + values.get(i + 1) * counts.get(i + 1)) / merged);
+                counts.set(i, merged);
+                values.remove(i + 1);
+                counts.remove(i + 1);
+            }
+        }
+    }
+
+    /**
+     * A drained distribution in the shape of an EMF histogram: bucket values with their counts,
+     * and the exact count, sum, minimum and maximum.
+     */
+    record Snapshot(List<Double> values, List<Long> counts, long count, double sum, double min, double max) {
+    }
+}
@@ -0,0 +1,430 @@
+package org.example.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dynamodb.DynamoDbCallListener;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Request and DynamoDB metrics of the instance, written as CloudWatch Embedded Metric Format (EMF)
+ * lines to standard output, where the Lambda runtime hands them to CloudWatch Logs and CloudWatch
+ * extracts the metrics. Recording a request or call only adds to in-memory histograms and counters:
+ * <ul>
+ *     <li>per route: {@code Latency}, {@code RequestBytes} and {@code ResponseBytes} histograms,
+ *     and {@code ClientErrors} and {@code ServerErrors} counts;</li>
+ *     <li>per DynamoDB operation: {@code DynamoDbLatency} and {@code ConsumedCapacity} histograms
+ *     and a {@code DynamoDbErrors} count, the call count being the latency's sample count;</li>
+ *     <li>per {@link #register registered} component, e.g. the product cache: the figures it reports
+ *     on each flush.</li>
+ * </ul>
+ * One line per route and operation is written on {@link #flush()}, never while a request is
+ * handled: the Lambda handlers call {@link #flushIfDue()} after the response is written, which
+ * flushes after the first invocation and then once per flush interval, and long-lived servers flush
+ * every flush interval from {@link #scheduleFlushes()}. A shutdown hook writes what is left. The
+ * first request of the instance is kept on its own line, with {@code ColdStart} {@code true}. A
+ * sampled fraction of the requests is also logged as a plain JSON line with the request's own numbers.
+ */
+public final class Metrics implements DynamoDbCallListener {
+
+    public static final String PREFLIGHT_ROUTE = "OPTIONS *";
+    /** Path of requests that matched no route, so that unknown paths do not become dimensions. */
+    public static final String UNMATCHED_PATH = "unmatched";
+
+    private static final String DEFAULT_NAMESPACE = "ProductService";
+    private static final int DEFAULT_FLUSH_SECONDS = 60;
+    private static final double DEFAULT_SAMPLE_RATE = 0.01;
+    private static final long NEVER_FLUSHED = Long.MIN_VALUE;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Metrics SHARED = fromEnv();
+    // priming requests are not real traffic and must not take the cold start
+    private static final ThreadLocal<Boolean> unrecorded = ThreadLocal.withInitial(() -> false);
+
+    private final boolean enabled;
+    private final String namespace;
+    private final long flushIntervalSeconds;
+    private final double sampleRate;
+    private final Consumer<String> sink;
+    // wall clock millis, which unlike System.nanoTime keeps counting while a Lambda instance is frozen
+    private final LongSupplier clock;
+
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    private final Map<String, RouteMetrics> coldRoutes = new ConcurrentHashMap<>();
+    private final Map<String, CallMetrics> operations = new ConcurrentHashMap<>();
+    private final Map<String, ComponentMetrics> components = new ConcurrentHashMap<>();
+    private final AtomicBoolean coldStart = new AtomicBoolean(true);
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong lastFlush = new AtomicLong(NEVER_FLUSHED);
+    private final Object flushLock = new Object();
+
+    /**
+     * @param flushIntervalSeconds interval of {@link #scheduleFlushes()} and {@link #flushIfDue()};
+     *                             {@code 0} schedules nothing and makes every {@code flushIfDue} flush
+     * @param sampleRate           fraction of the requests logged one by one, {@code 0} to {@code 1}
+     * @param sink                 takes each line, e.g. {@code System.out::println}
+     */
+    public Metrics(boolean enabled, String namespace, long flushIntervalSeconds, double sampleRate, Consumer<String> sink) {
+        this(enabled, namespace, flushIntervalSeconds, sampleRate, sink, System::currentTimeMillis);
+    }
+
+    Metrics(boolean enabled, String namespace, long flushIntervalSeconds, double sampleRate, Consumer<String> sink,
+            LongSupplier clock) {
+        this.enabled = enabled;
+        this.namespace = namespace;
+        this.flushIntervalSeconds = flushIntervalSeconds;
+        this.sampleRate = sampleRate;
+        this.sink = sink;
+        this.clock = clock;
+    }
+
+    /**
+     * The instance's metrics, set up from {@code METRICS_ENABLED}, {@code METRICS_NAMESPACE},
+     * {@code METRICS_FLUSH_SECONDS} and {@code METRICS_SAMPLE_RATE}, and flushed by a shutdown hook.
+     */
+    public static Metrics shared() {
+        return SHARED;
+    }
+
+    private static Metrics fromEnv() {
+        Metrics metrics = new Metrics(
+                Optional.ofNullable(System.getenv("METRICS_ENABLED")).map(Boolean::parseBoolean).orElse(false),
+                Optional.ofNullable(System.getenv("METRICS_NAMESPACE")).orElse(DEFAULT_NAMESPACE),
+                Optional.ofNullable(System.getenv("METRICS_FLUSH_SECONDS")).map(Integer::parseInt).orElse(DEFAULT_FLUSH_SECONDS),
+                Optional.ofNullable(System.getenv("METRICS_SAMPLE_RATE")).map(Double::parseDouble).orElse(DEFAULT_SAMPLE_RATE),
+                System.out::println);
+        if (metrics.enabled) {
+            Runtime.getRuntime().addShutdownHook(new Thread(metrics::flush, "metrics-flush"));
+        }
+        return metrics;
+    }
+
+    /**
+     * Runs {@code action} without recording the requests it makes on this thread.
+     */
+    public static void withoutRecording(Runnable action) {
+        unrecorded.set(true);
+        try {
+            action.run();
+        } finally {
+            unrecorded.set(false);
+        }
+    }
+
+    /**
+     * Flushes every flush interval on a daemon thread, for long-lived servers. Lambda instances are
+     * frozen between invocations, so the handlers call {@link #flushIfDue()} at the end of each instead.
+     */
+    public void scheduleFlushes() {
+        if (!enabled || flushIntervalSeconds <= 0 || !scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::flush, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Flushes if this is the first call, so that the cold start is written while the instance is
+     * known to be alive, or if the flush interval has passed since the last flush of this method,
+     * frozen time included. Called by the Lambda handlers at the end of every invocation; the other
+     * invocations only compare two numbers. Priming, see {@link #withoutRecording}, flushes nothing.
+     */
+    public void flushIfDue() {
+        if (!enabled || unrecorded.get()) {
+            return;
+        }
+        long now = clock.getAsLong();
+        long last = lastFlush.get();
+        boolean due = last == NEVER_FLUSHED || now - last >= TimeUnit.SECONDS.toMillis(flushIntervalSeconds);
+        if (due && lastFlush.compareAndSet(last, now)) {
+            flush();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * This instance as the listener of DynamoDB clients, or {@code null} when disabled, so that
+     * the clients do not ask for consumed capacity.
+     */
+    public DynamoDbCallListener dynamoDbCallListener() {
+        return enabled ? this : null;
+    }
+
+    /**
+     * @param route the route template, e.g. {@code GET /products/{productId}}
+     */
+    public void recordRequest(String route, int status, long latencyNanos, long requestBytes, long responseBytes) {
+        if (!enabled || unrecorded.get()) {
+            return;
+        }
+        double latencyMillis = latencyNanos / 1_000_000.0;
+        boolean cold = coldStart.get() && coldStart.compareAndSet(true, false);
+        // on its own, so the first request is told apart from the warm ones
+        (cold ? coldRoutes : routes).computeIfAbsent(route, key -> new RouteMetrics())
+                .record(status, latencyMillis, requestBytes, responseBytes);
+
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("message", "request");
+            line.put("route", route);
+            line.put("status", status);
+            line.put("latencyMs", latencyMillis);
+            line.put("requestBytes", requestBytes);
+            line.put("responseBytes", responseBytes);
+            line.put("coldStart", cold);
+            write(line);
+        }
+    }
+
+    /**
+     * Writes the figures {@code values} reports on every flush, on one line with the dimension
+     * {@code Component}, e.g. the hits and misses of a cache. Counters are written as their increase
+     * since the last flush; the line is left out when no figure changed.
+     */
+    public void register(String component, Supplier<List<Value>> values) {
+        if (enabled) {
+            components.put(component, new ComponentMetrics(values));
+        }
+    }
+
+    @Override
+    public void onCall(String operation, long latencyNanos, double consumedCapacity, boolean failed) {
+        if (!enabled || unrecorded.get()) {
+            return;
+        }
+        operations.computeIfAbsent(operation, key -> new CallMetrics()).record(latencyNanos / 1_000_000.0, consumedCapacity, failed);
+    }
+
+    /**
+     * Writes what was recorded since the last flush, one line per route, per DynamoDB operation and
+     * per changed component.
+     */
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (flushLock) {
+            coldRoutes.forEach((route, metrics) -> {
+                Map<String, Object> line = metrics.toEmf(namespace, route, true);
+                if (line != null) {
+                    write(line);
+                }
+            });
+            routes.forEach((route, metrics) -> {
+                Map<String, Object> line = metrics.toEmf(namespace, route, false);
+                if (line != null) {
+                    write(line);
+                }
+            });
+            operations.forEach((operation, metrics) -> {
+                Map<String, Object> line = metrics.toEmf(namespace, operation);
+                if (line != null) {
+                    write(line);
+                }
+            });
+            components.forEach((component, metrics) -> {
+                Map<String, Object> line = metrics.toEmf(namespace, component);
+                if (line != null) {
+                    write(line);
+                }
+            });
+        }
+    }
+
+    private void write(Map<String, Object> line) {
+        try {
+            sink.accept(objectMapper.writeValueAsString(line));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to write metrics: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The {@code _aws} metadata that declares {@code metrics} (name to unit) with {@code dimensions}.
+     */
+    private static Map<String, Object> emf(String namespace, List<List<String>> dimensions, Map<String, String> metrics) {
+        List<Map<String, String>> definitions = metrics.entrySet().stream()
+                .map(metric -> Map.of("Name", metric.getKey(), "Unit", metric.getValue()))
+                .toList();
+        Map<String, Object> directive = new LinkedHashMap<>();
+        directive.put("Namespace", namespace);
+        directive.put("Dimensions", dimensions);
+        directive.put("Metrics", definitions);
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("Timestamp", System.currentTimeMillis());
+        metadata.put("CloudWatchMetrics", List.of(directive));
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("_aws", metadata);
+        return line;
+    }
+
+    private static Map<String, Object> values(Histogram.Snapshot snapshot) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("Values", snapshot.values());
+        values.put("Counts", snapshot.counts());
+        values.put("Count", snapshot.count());
+        values.put("Sum", snapshot.sum());
+        values.put("Min", snapshot.min());
+        values.put("Max", snapshot.max());
+        return values;
+    }
+
+    /**
+     * A figure a {@link #register registered} component reports.
+     */
+    public record Value(String name, double value, String unit, boolean counter) {
+
+        /**
+         * A running total, e.g. the hits since start, written as its increase since the last flush.
+         */
+        public static Value counter(String name, long total) {
+            return new Value(name, total, "Count", true);
+        }
+
+        /**
+         * A current level, e.g. the number of cached entries, written as it is.
+         */
+        public static Value gauge(String name, double value, String unit) {
+            return new Value(name, value, unit, false);
+        }
+    }
+
+    private static final class RouteMetrics {
+        // 0.1 ms up to about 10 minutes, 16 bytes up to about 4 GB
+        final Histogram latency = new Histogram(0.1, 113);
+        final Histogram requestBytes = new Histogram(16, 140);
+        final Histogram responseBytes = new Histogram(16, 140);
+        final LongAdder clientErrors = new LongAdder();
+        final LongAdder serverErrors = new LongAdder();
+
+        void record(int status, double latencyMillis, long requestSize, long responseSize) {
+            latency.record(latencyMillis);
+            requestBytes.record(requestSize);
+            responseBytes.record(responseSize);
+            if (status >= 500) {
+                serverErrors.increment();
+            } else if (status >= 400) {
+                clientErrors.increment();
+            }
+        }
+
+        Map<String, Object> toEmf(String namespace, String route, boolean coldStart) {
+            Histogram.Snapshot latencies = latency.drain();
+            Histogram.Snapshot requestSizes = requestBytes.drain();
+            Histogram.Snapshot responseSizes = responseBytes.drain();
+            long clientErrorCount = clientErrors.sumThenReset();
+            long serverErrorCount = serverErrors.sumThenReset();
+            if (latencies == null) {
+                return null;
+            }
+
+            Map<String, String> metrics = new LinkedHashMap<>();
+            metrics.put("Latency", "Milliseconds");
+            metrics.put("RequestBytes", "Bytes");
+            metrics.put("ResponseBytes", "Bytes");
+            metrics.put("ClientErrors", "Count");
+            metrics.put("ServerErrors", "Count");
+            Map<String, Object> line = emf(namespace, List.of(List.of("Route"), List.of("Route", "ColdStart")), metrics);
+            line.put("Route", route);
+            line.put("ColdStart", String.valueOf(coldStart));
+            line.put("Latency", values(latencies));
+            line.put("RequestBytes", values(requestSizes));
+            line.put("ResponseBytes", values(responseSizes));
+            line.put("ClientErrors", clientErrorCount);
+            line.put("ServerErrors", serverErrorCount);
+            return line;
+        }
+    }
+
+    private static final class CallMetrics {
+        final Histogram latency = new Histogram(0.1, 113);
+        // half a read unit up to about a million units
+        final Histogram consumedCapacity = new Histogram(0.5, 110);
+        final LongAdder errors = new LongAdder();
+
+        void record(double latencyMillis, double capacity, boolean failed) {
+            latency.record(latencyMillis);
+            if (failed) {
+                errors.increment();
+            } else {
+                consumedCapacity.record(capacity);
+            }
+        }
+
+        Map<String, Object> toEmf(String namespace, String operation) {
+            Histogram.Snapshot latencies = latency.drain();
+            Histogram.Snapshot capacities = consumedCapacity.drain();
+            long errorCount = errors.sumThenReset();
+            if (latencies == null) {
+                return null;
+            }
+
+            Map<String, String> metrics = new LinkedHashMap<>();
+            metrics.put("DynamoDbLatency", "Milliseconds");
+            if (capacities != null) {
+                metrics.put("ConsumedCapacity", "Count");
+            }
+            metrics.put("DynamoDbErrors", "Count");
+            Map<String, Object> line = emf(namespace, List.of(List.of("Operation")), metrics);
+            line.put("Operation", operation);
+            line.put("DynamoDbLatency", values(latencies));
+            if (capacities != null) {
+                line.put("ConsumedCapacity", values(capacities));
+            }
+            line.put("DynamoDbErrors", errorCount);
+            return line;
+        }
+    }
+
+    private static final class ComponentMetrics {
+        final Supplier<List<Value>> values;
+        // guarded by flushLock
+        final Map<String, Double> written = new HashMap<>();
+
+        ComponentMetrics(Supplier<List<Value>> values) {
+            this.values = values;
+        }
+
+        Map<String, Object> toEmf(String namespace, String component) {
+            Map<String, String> metrics = new LinkedHashMap<>();
+            Map<String, Double> figures = new LinkedHashMap<>();
+            boolean changed = false;
+            for (Value value : values.get()) {
+                Double previous = written.put(value.name(), value.value());
+                changed |= previous == null || previous != value.value();
+                metrics.put(value.name(), value.unit());
+                figures.put(value.name(), value.counter() && previous != null ? value.value() - previous : value.value());
+            }
+            if (!changed) {
+                return null;
+            }
+
+            Map<String, Object> line = emf(namespace, List.of(List.of("Component")), metrics);
+            line.put("Component", component);
+            line.putAll(figures);
+            return line;
+        }
+    }
+}
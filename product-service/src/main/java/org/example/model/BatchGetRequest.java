@@ -0,0 +1,6 @@
+package org.example.model;
+
+import java.util.List;
+
+public record BatchGetRequest(List<String> ids) {
+}
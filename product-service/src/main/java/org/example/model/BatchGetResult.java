@@ -0,0 +1,10 @@
+package org.example.model;
+
+import java.util.List;
+
+/**
+ * Products found by a batch lookup, in the order their ids were requested,
+ * plus the requested ids that do not exist.
+ */
+public record BatchGetResult(List<Product> products, List<String> missingIds) {
+}
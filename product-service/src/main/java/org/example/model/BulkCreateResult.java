@@ -0,0 +1,12 @@
+package org.example.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome for one element of a bulk create request. {@code index} is the position of the element
+ * in the request, {@code status} is 201 when it was created, 400 when it was rejected and 500 when
+ * its write failed; {@code product} is only set for created elements, {@code message} for the others.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkCreateResult(int index, int status, Product product, String message) {
+}
@@ -0,0 +1,9 @@
+package org.example.model;
+
+import java.util.List;
+
+/**
+ * One page of products; {@code nextCursor} is {@code null} on the last page.
+ */
+public record ProductPage(List<Product> items, String nextCursor) {
+}
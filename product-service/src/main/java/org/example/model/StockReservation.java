@@ -0,0 +1,8 @@
+package org.example.model;
+
+/**
+ * A reservation or release that was applied. The remaining count is not part of it: reservations
+ * of one product are written together, and a transactional write returns no item.
+ */
+public record StockReservation(String productId, int quantity) {
+}
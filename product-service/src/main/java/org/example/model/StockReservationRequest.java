@@ -0,0 +1,7 @@
+package org.example.model;
+
+/**
+ * Body of {@code POST /products/{productId}/reserve} and {@code /release}: the number of items to take or return.
+ */
+public record StockReservationRequest(Integer quantity) {
+}
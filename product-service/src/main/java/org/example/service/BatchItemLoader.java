@@ -0,0 +1,80 @@
+package org.example.service;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fetches items by their string hash key with {@code BatchGetItem}, 100 keys per call.
+ * Keys DynamoDB hands back as {@code UnprocessedKeys} are retried with jittered exponential backoff.
+ */
+public class BatchItemLoader {
+
+    static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_MILLIS = 20;
+    private static final long MAX_BACKOFF_MILLIS = 1_000;
+
+    private final DynamoDbClient dynamoDb;
+
+    public BatchItemLoader(DynamoDbClient dynamoDb) {
+        this.dynamoDb = dynamoDb;
+    }
+
+    /**
+     * Returns the items that exist, keyed by the value of {@code keyAttribute}.
+     * Duplicate ids are looked up once; ids without an item are simply absent from the result.
+     */
+    public Map<String, Map<String, AttributeValue>> load(String tableName, String keyAttribute, Collection<String> ids) {
+        List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<String, Map<String, AttributeValue>> items = new HashMap<>(distinctIds.size() * 2);
+
+        for (int from = 0; from < distinctIds.size(); from += MAX_BATCH_SIZE) {
+            List<Map<String, AttributeValue>> keys = new ArrayList<>(MAX_BATCH_SIZE);
+            for (String id : distinctIds.subList(from, Math.min(from + MAX_BATCH_SIZE, distinctIds.size()))) {
+                keys.add(Map.of(keyAttribute, AttributeValue.builder().s(id).build()));
+            }
+            loadChunk(tableName, keyAttribute, keys, items);
+        }
+        return items;
+    }
+
+    private void loadChunk(String tableName, String keyAttribute, List<Map<String, AttributeValue>> keys,
+                           Map<String, Map<String, AttributeValue>> items) {
+        Map<String, KeysAndAttributes> pending = Map.of(tableName, KeysAndAttributes.builder().keys(keys).build());
+
+        for (int attempt = 0; ; attempt++) {
+            BatchGetItemResponse response = dynamoDb.batchGetItem(
+                    BatchGetItemRequest.builder().requestItems(pending).build());
+
+            for (Map<String, AttributeValue> item : response.responses().getOrDefault(tableName, List.of())) {
+                items.put(item.get(keyAttribute).s(), item);
+            }
+
+            pending = response.unprocessedKeys();
+            if (pending == null || pending.isEmpty()) {
+                return;
+            }
+            if (attempt + 1 >= MAX_ATTEMPTS) {
+                throw new RuntimeException("Failed to read " + pending.get(tableName).keys().size()
+                        + " keys from " + tableName + " after " + MAX_ATTEMPTS + " attempts");
+            }
+            backoff(attempt);
+        }
+    }
+
+    private static void backoff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << attempt);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying unprocessed keys", e);
+        }
+    }
+}
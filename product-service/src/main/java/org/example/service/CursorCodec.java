@@ -0,0 +1,89 @@
+package org.example.service;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.*;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns a DynamoDB {@code LastEvaluatedKey} into an opaque, URL-safe continuation token and back.
+ * Only string and number key attributes are supported, which covers every key schema we use.
+ */
+public final class CursorCodec {
+
+    private static final byte VERSION = 1;
+    private static final byte STRING = 'S';
+    private static final byte NUMBER = 'N';
+
+    private CursorCodec() {
+    }
+
+    public static String encode(Map<String, AttributeValue> key) {
+        if (key == null || key.isEmpty()) {
+            return null;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(key.size());
+            for (Map.Entry<String, AttributeValue> attribute : key.entrySet()) {
+                AttributeValue value = attribute.getValue();
+                out.writeUTF(attribute.getKey());
+                if (value.s() != null) {
+                    out.writeByte(STRING);
+                    out.writeUTF(value.s());
+                } else if (value.n() != null) {
+                    out.writeByte(NUMBER);
+                    out.writeUTF(value.n());
+                } else {
+                    throw new IllegalArgumentException("Unsupported key attribute type for " + attribute.getKey());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * @throws InvalidCursorException if the token was not produced by {@link #encode(Map)}
+     */
+    public static Map<String, AttributeValue> decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            return readKey(in);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor", e);
+        }
+    }
+
+    private static Map<String, AttributeValue> readKey(DataInputStream in) throws IOException {
+        if (in.readByte() != VERSION) {
+            throw new IOException("Unknown cursor version");
+        }
+        int size = in.readUnsignedByte();
+        Map<String, AttributeValue> key = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            String name = in.readUTF();
+            byte type = in.readByte();
+            String value = in.readUTF();
+            if (type == STRING) {
+                key.put(name, AttributeValue.builder().s(value).build());
+            } else if (type == NUMBER) {
+                key.put(name, AttributeValue.builder().n(value).build());
+            } else {
+                throw new IOException("Unknown attribute type " + type);
+            }
+        }
+        if (in.read() != -1) {
+            throw new IOException("Trailing bytes after cursor key");
+        }
+        return key;
+    }
+}
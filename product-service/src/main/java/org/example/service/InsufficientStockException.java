@@ -0,0 +1,24 @@
+package org.example.service;
+
+/**
+ * Thrown when a reservation asks for more items than are in stock.
+ */
+public class InsufficientStockException extends RuntimeException {
+
+    private final int requested;
+    private final int available;
+
+    public InsufficientStockException(int requested, int available) {
+        super("Requested " + requested + " items, " + available + " in stock");
+        this.requested = requested;
+        this.available = available;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+}
@@ -0,0 +1,240 @@
+package org.example.service;
+
+import org.example.model.BatchGetResult;
+import org.example.model.Product;
+import org.example.model.ProductPage;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+import static org.example.service.ProductItems.toProduct;
+import static org.example.service.ProductItems.toProducts;
+import static org.example.service.ProductItems.toStockCounts;
+
+/**
+ * Reads products from the {@code products} table and joins each with its {@code stocks} item,
+ * which costs a second read per product.
+ */
+public class JoinProductRepository implements ProductRepository {
+
+    static final int MAX_PAGES_IN_FLIGHT = 4;
+
+    private final DynamoDbClient dynamoDb;
+    private final DynamoDbAsyncClient dynamoDbAsync;
+    private final ProductService.ReadMode readMode;
+    private final String productsTable;
+    private final String stocksTable;
+    private final ParallelScanner scanner;
+    private final BatchItemLoader batchLoader;
+    private final ExecutorService joinExecutor;
+
+    /**
+     * @param dynamoDbAsync the async client, required for {@link ProductService.ReadMode#ASYNC}
+     * @param joinExecutor  runs the stock lookups that overlap with product reads
+     */
+    public JoinProductRepository(DynamoDbClient dynamoDb, DynamoDbAsyncClient dynamoDbAsync,
+                                 ProductService.ReadMode readMode, String productsTable, String stocksTable,
+                                 ParallelScanner scanner, ExecutorService joinExecutor) {
+        if (readMode == ProductService.ReadMode.ASYNC && dynamoDbAsync == null) {
+            throw new IllegalArgumentException("PRODUCT_READ_MODE=async requires a DynamoDbAsyncClient");
+        }
+        this.dynamoDb = dynamoDb;
+        this.dynamoDbAsync = dynamoDbAsync;
+        this.readMode = readMode;
+        this.productsTable = productsTable;
+        this.stocksTable = stocksTable;
+        this.scanner = scanner;
+        this.batchLoader = new BatchItemLoader(dynamoDb);
+        this.joinExecutor = joinExecutor;
+    }
+
+    /**
+     * Stock items are fetched per page with {@code BatchGetItem}; while a page waits for its
+     * stocks the scan already moves on to the next one, up to {@link #MAX_PAGES_IN_FLIGHT} pages.
+     */
+    @Override
+    public void forEachItemPage(
+            BiConsumer<List<Map<String, AttributeValue>>, Map<String, Map<String, AttributeValue>>> pageConsumer) {
+        Semaphore inFlight = new Semaphore(MAX_PAGES_IN_FLIGHT);
+        AtomicReference<CompletableFuture<Void>> tail = new AtomicReference<>(CompletableFuture.completedFuture(null));
+
+        RuntimeException scanFailure = null;
+        try {
+            scanner.scan(productsTable, page -> {
+                if (tail.get().isCompletedExceptionally()) {
+                    // a previous page already failed, stop scanning and report that failure below
+                    throw new CancellationException("Product scan aborted");
+                }
+                inFlight.acquireUninterruptibly();
+                CompletableFuture<Map<String, Map<String, AttributeValue>>> stocks =
+                        CompletableFuture.supplyAsync(() -> getStockItems(page), joinExecutor);
+                tail.set(tail.get()
+                        .thenCombine(stocks, (ignored, stockItems) -> {
+                            pageConsumer.accept(page, stockItems);
+                            return (Void) null;
+                        })
+                        .whenComplete((ignored, error) -> inFlight.release()));
+            });
+        } catch (CancellationException e) {
+            // the failed page is rethrown from the tail below
+        } catch (RuntimeException e) {
+            scanFailure = e;
+        }
+
+        // wait for the pages still in flight even if the scan failed, so pageConsumer
+        // is never called after this method returns
+        join(tail.get());
+        if (scanFailure != null) {
+            throw scanFailure;
+        }
+    }
+
+    /**
+     * Pages are queried and joined one after the other: index queries are selective, so their
+     * pages are few and there is little to gain from overlapping them.
+     */
+    @Override
+    public void forEachQueryPage(QueryRequest query,
+                                 BiConsumer<List<Map<String, AttributeValue>>, Map<String, Map<String, AttributeValue>>> pageConsumer) {
+        QueryRequest request = query.toBuilder().tableName(productsTable).build();
+        while (true) {
+            QueryResponse response = dynamoDb.query(request);
+            if (!response.items().isEmpty()) {
+                pageConsumer.accept(response.items(), getStockItems(response.items()));
+            }
+            if (!response.hasLastEvaluatedKey() || response.lastEvaluatedKey().isEmpty()) {
+                return;
+            }
+            request = request.toBuilder().exclusiveStartKey(response.lastEvaluatedKey()).build();
+        }
+    }
+
+    @Override
+    public ProductPage findPage(int limit, String cursor) {
+        ScanRequest.Builder request = ScanRequest.builder()
+                .tableName(productsTable)
+                .limit(limit);
+        Map<String, AttributeValue> startKey = CursorCodec.decode(cursor);
+        if (startKey != null) {
+            request.exclusiveStartKey(startKey);
+        }
+
+        ScanResponse response = dynamoDb.scan(request.build());
+        List<Product> products = toProducts(response.items(), toStockCounts(getStockItems(response.items())));
+        String nextCursor = response.hasLastEvaluatedKey() ? CursorCodec.encode(response.lastEvaluatedKey()) : null;
+        return new ProductPage(products, nextCursor);
+    }
+
+    private Map<String, Map<String, AttributeValue>> getStockItems(List<Map<String, AttributeValue>> productItems) {
+        List<String> productIds = new ArrayList<>(productItems.size());
+        for (Map<String, AttributeValue> productItem : productItems) {
+            productIds.add(productItem.get("id").s());
+        }
+
+        return batchLoader.load(stocksTable, "product_id", productIds);
+    }
+
+    /**
+     * Reads both tables with {@code BatchGetItem}, the stocks concurrently with the products.
+     */
+    @Override
+    public BatchGetResult findByIds(List<String> productIds) {
+        CompletableFuture<Map<String, Map<String, AttributeValue>>> stockItems =
+                CompletableFuture.supplyAsync(() -> batchLoader.load(stocksTable, "product_id", productIds), joinExecutor);
+        Map<String, Map<String, AttributeValue>> productItems = batchLoader.load(productsTable, "id", productIds);
+        Map<String, Map<String, AttributeValue>> stocks = join(stockItems);
+
+        List<Product> products = new ArrayList<>(productIds.size());
+        List<String> missingIds = new ArrayList<>();
+        for (String id : productIds) {
+            Map<String, AttributeValue> productItem = productItems.get(id);
+            if (productItem == null) {
+                missingIds.add(id);
+            } else {
+                products.add(toProduct(productItem, stocks.get(id)));
+            }
+        }
+        return new BatchGetResult(products, missingIds);
+    }
+
+    @Override
+    public Optional<Product> findById(String productId) {
+        GetItemRequest productRequest = GetItemRequest.builder()
+                .tableName(productsTable)
+                .key(Map.of("id", AttributeValue.builder().s(productId).build()))
+                .build();
+        GetItemRequest stockRequest = GetItemRequest.builder()
+                .tableName(stocksTable)
+                .key(Map.of("product_id", AttributeValue.builder().s(productId).build()))
+                .build();
+
+        return switch (readMode) {
+            case SYNC -> loadProductSequentially(productRequest, stockRequest);
+            case ASYNC -> loadProductConcurrently(productRequest, stockRequest);
+            case TRANSACT -> loadProductInOneRoundTrip(productRequest, stockRequest);
+        };
+    }
+
+    private Optional<Product> loadProductSequentially(GetItemRequest productRequest, GetItemRequest stockRequest) {
+        Map<String, AttributeValue> productItem = dynamoDb.getItem(productRequest).item();
+        if (productItem.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Map<String, AttributeValue> stockItem = dynamoDb.getItem(stockRequest).item();
+        return Optional.of(toProduct(productItem, stockItem));
+    }
+
+    /**
+     * Issues both GetItem calls at once on the async client, so the lookup costs one
+     * round trip of latency instead of two. The stock read is wasted if the product is missing.
+     */
+    private Optional<Product> loadProductConcurrently(GetItemRequest productRequest, GetItemRequest stockRequest) {
+        CompletableFuture<GetItemResponse> productResponse = dynamoDbAsync.getItem(productRequest);
+        CompletableFuture<GetItemResponse> stockResponse = dynamoDbAsync.getItem(stockRequest);
+
+        return join(productResponse.thenCombine(stockResponse, (product, stock) -> product.item().isEmpty()
+                ? Optional.<Product>empty()
+                : Optional.of(toProduct(product.item(), stock.item()))));
+    }
+
+    /**
+     * Reads both items with a single TransactGetItems call. One round trip and a consistent
+     * snapshot of product and stock, at twice the read capacity of two GetItem calls.
+     */
+    private Optional<Product> loadProductInOneRoundTrip(GetItemRequest productRequest, GetItemRequest stockRequest) {
+        TransactGetItemsRequest request = TransactGetItemsRequest.builder()
+                .transactItems(
+                        TransactGetItem.builder().get(Get.builder()
+                                .tableName(productRequest.tableName()).key(productRequest.key()).build()).build(),
+                        TransactGetItem.builder().get(Get.builder()
+                                .tableName(stockRequest.tableName()).key(stockRequest.key()).build()).build())
+                .build();
+
+        List<ItemResponse> responses = dynamoDb.transactGetItems(request).responses();
+        Map<String, AttributeValue> productItem = responses.get(0).item();
+        if (productItem == null || productItem.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(toProduct(productItem, responses.get(1).item()));
+    }
+
+    /**
+     * Waits for the future and rethrows an SDK or service failure as it was thrown.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
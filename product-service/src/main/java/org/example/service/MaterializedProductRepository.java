@@ -0,0 +1,142 @@
+package org.example.service;
+
+import org.example.model.BatchGetResult;
+import org.example.model.Product;
+import org.example.model.ProductPage;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+import static org.example.service.ProductItems.toProduct;
+
+/**
+ * Reads the product view: one item per product, keyed by {@code id}, with the product attributes
+ * and its stock {@code count}. Every read is a single item read, at half the capacity and latency
+ * of a join. {@link ProductService} keeps the view in sync in the same transactions that write the
+ * {@code products} and {@code stocks} tables, and {@code db}'s {@code ViewBackfill} builds it from
+ * existing tables.
+ * <p>
+ * {@link ProductService#updateStock} creates items with only {@code id} and {@code count} for products
+ * the backfill has not reached yet. Until the backfill fills them in, every read treats them as
+ * missing.
+ */
+public class MaterializedProductRepository implements ProductRepository {
+
+    private final DynamoDbClient dynamoDb;
+    private final String viewTable;
+    private final ParallelScanner scanner;
+    private final BatchItemLoader batchLoader;
+
+    public MaterializedProductRepository(DynamoDbClient dynamoDb, String viewTable, ParallelScanner scanner) {
+        this.dynamoDb = dynamoDb;
+        this.viewTable = viewTable;
+        this.scanner = scanner;
+        this.batchLoader = new BatchItemLoader(dynamoDb);
+    }
+
+    @Override
+    public Optional<Product> findById(String productId) {
+        Map<String, AttributeValue> item = dynamoDb.getItem(GetItemRequest.builder()
+                .tableName(viewTable)
+                .key(Map.of("id", AttributeValue.builder().s(productId).build()))
+                .build()).item();
+        return isComplete(item) ? Optional.of(toProduct(item, item)) : Optional.empty();
+    }
+
+    @Override
+    public BatchGetResult findByIds(List<String> productIds) {
+        Map<String, Map<String, AttributeValue>> items = batchLoader.load(viewTable, "id", productIds);
+
+        List<Product> products = new ArrayList<>(productIds.size());
+        List<String> missingIds = new ArrayList<>();
+        for (String id : productIds) {
+            Map<String, AttributeValue> item = items.get(id);
+            if (item == null || !isComplete(item)) {
+                missingIds.add(id);
+            } else {
+                products.add(toProduct(item, item));
+            }
+        }
+        return new BatchGetResult(products, missingIds);
+    }
+
+    @Override
+    public ProductPage findPage(int limit, String cursor) {
+        ScanRequest.Builder request = ScanRequest.builder()
+                .tableName(viewTable)
+                .limit(limit);
+        Map<String, AttributeValue> startKey = CursorCodec.decode(cursor);
+        if (startKey != null) {
+            request.exclusiveStartKey(startKey);
+        }
+
+        ScanResponse response = dynamoDb.scan(request.build());
+        List<Product> products = new ArrayList<>(response.items().size());
+        for (Map<String, AttributeValue> item : complete(response.items())) {
+            products.add(toProduct(item, item));
+        }
+        String nextCursor = response.hasLastEvaluatedKey() ? CursorCodec.encode(response.lastEvaluatedKey()) : null;
+        return new ProductPage(products, nextCursor);
+    }
+
+    /**
+     * Every view item is its own stock item, so the stock map of a page maps each id to the item itself.
+     */
+    @Override
+    public void forEachItemPage(
+            BiConsumer<List<Map<String, AttributeValue>>, Map<String, Map<String, AttributeValue>>> pageConsumer) {
+        scanner.scan(viewTable, page -> {
+            List<Map<String, AttributeValue>> items = complete(page);
+            pageConsumer.accept(items, byId(items));
+        });
+    }
+
+    @Override
+    public void forEachQueryPage(QueryRequest query,
+                                 BiConsumer<List<Map<String, AttributeValue>>, Map<String, Map<String, AttributeValue>>> pageConsumer) {
+        QueryRequest request = query.toBuilder().tableName(viewTable).build();
+        while (true) {
+            QueryResponse response = dynamoDb.query(request);
+            List<Map<String, AttributeValue>> items = complete(response.items());
+            if (!items.isEmpty()) {
+                pageConsumer.accept(items, byId(items));
+            }
+            if (!response.hasLastEvaluatedKey() || response.lastEvaluatedKey().isEmpty()) {
+                return;
+            }
+            request = request.toBuilder().exclusiveStartKey(response.lastEvaluatedKey()).build();
+        }
+    }
+
+    /**
+     * Whether the item carries the product attributes, not just the count of a product the backfill
+     * has not reached.
+     */
+    private static boolean isComplete(Map<String, AttributeValue> item) {
+        return item.containsKey("title");
+    }
+
+    private static List<Map<String, AttributeValue>> complete(List<Map<String, AttributeValue>> items) {
+        for (Map<String, AttributeValue> item : items) {
+            if (!isComplete(item)) {
+                return items.stream().filter(MaterializedProductRepository::isComplete).toList();
+            }
+        }
+        return items;
+    }
+
+    private static Map<String, Map<String, AttributeValue>> byId(List<Map<String, AttributeValue>> items) {
+        Map<String, Map<String, AttributeValue>> byId = new HashMap<>(items.size() * 2);
+        for (Map<String, AttributeValue> item : items) {
+            byId.put(item.get("id").s(), item);
+        }
+        return byId;
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.service;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Reads a whole DynamoDB table, following {@code LastEvaluatedKey} until the last page.
+ * When more than one segment is configured the table is split into DynamoDB parallel-scan
+ * segments which run on the given (bounded) executor.
+ */
+public class ParallelScanner {
+
+    private final DynamoDbClient dynamoDb;
+    private final ExecutorService executor;
+    private final int totalSegments;
+
+    public ParallelScanner(DynamoDbClient dynamoDb, ExecutorService executor, int totalSegments) {
+        if (totalSegments < 1) {
+            throw new IllegalArgumentException("totalSegments must be positive, got " + totalSegments);
+        }
+        this.dynamoDb = dynamoDb;
+        this.executor = executor;
+        this.totalSegments = totalSegments;
+    }
+
+    public int getTotalSegments() {
+        return totalSegments;
+    }
+
+    public List<Map<String, AttributeValue>> scanAll(String tableName) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        scan(tableName, items::addAll);
+        return items;
+    }
+
+    /**
+     * Hands every non-empty page of the table to {@code pageConsumer}. Calls to the consumer
+     * never overlap, but with several segments the pages arrive in no particular order.
+     */
+    public void scan(String tableName, Consumer<List<Map<String, AttributeValue>>> pageConsumer) {
+        if (totalSegments == 1) {
+            scanSegment(tableName, null, pageConsumer);
+            return;
+        }
+
+        Object lock = new Object();
+        Consumer<List<Map<String, AttributeValue>>> serialized = page -> {
+            synchronized (lock) {
+                pageConsumer.accept(page);
+            }
+        };
+
+        List<Future<?>> segments = new ArrayList<>(totalSegments);
+        for (int segment = 0; segment < totalSegments; segment++) {
+            int current = segment;
+            segments.add(executor.submit(() -> scanSegment(tableName, current, serialized)));
+        }
+
+        try {
+            for (Future<?> segment : segments) {
+                segment.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while scanning table " + tableName, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to scan table " + tableName + ": " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            segments.forEach(segment -> segment.cancel(true));
+        }
+    }
+
+    private void scanSegment(String tableName, Integer segment,
+                             Consumer<List<Map<String, AttributeValue>>> pageConsumer) {
+        Map<String, AttributeValue> startKey = null;
+        do {
+            ScanRequest.Builder request = ScanRequest.builder().tableName(tableName);
+            if (segment != null) {
+                request.segment(segment).totalSegments(totalSegments);
+            }
+            if (startKey != null) {
+                request.exclusiveStartKey(startKey);
+            }
+
+            ScanResponse response = dynamoDb.scan(request.build());
+            if (response.hasItems() && !response.items().isEmpty()) {
+                pageConsumer.accept(response.items());
+            }
+            startKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                    ? response.lastEvaluatedKey()
+                    : null;
+        } while (startKey != null);
+    }
+}
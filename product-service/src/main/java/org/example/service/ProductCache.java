@@ -0,0 +1,116 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Size-bounded LRU cache of products with a fixed time-to-live, shared by all requests
+ * served by a warm container. Products are cached together with their stock count, so the
+ * TTL is also the upper bound on how stale a cached count can be.
+ */
+public class ProductCache {
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries maximum number of cached products; {@code 0} disables caching
+     */
+    public ProductCache(long ttl, TimeUnit unit, int maxEntries) {
+        this.ttlNanos = unit.toNanos(ttl);
+        this.maxEntries = maxEntries;
+        // access-ordered, so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ProductCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached product or loads it with {@code loader} and caches the result.
+     * Absent products are not cached. The loader runs outside the cache lock, so two
+     * concurrent misses for the same id may both load it.
+     */
+    public Optional<Product> get(String productId, Function<String, Optional<Product>> loader) {
+        if (maxEntries == 0) {
+            return loader.apply(productId);
+        }
+
+        Product cached = getIfPresent(productId);
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+
+        misses.increment();
+        Optional<Product> loaded = loader.apply(productId);
+        loaded.ifPresent(this::put);
+        return loaded;
+    }
+
+    public void put(Product product) {
+        if (maxEntries == 0) {
+            return;
+        }
+        Entry entry = new Entry(product, System.nanoTime() + ttlNanos);
+        synchronized (entries) {
+            entries.put(product.id(), entry);
+        }
+    }
+
+    public void invalidate(String productId) {
+        synchronized (entries) {
+            entries.remove(productId);
+        }
+    }
+
+    public Stats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size, maxEntries);
+    }
+
+    private Product getIfPresent(String productId) {
+        synchronized (entries) {
+            Entry entry = entries.get(productId);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAt() >= 0) {
+                entries.remove(productId);
+                return null;
+            }
+            return entry.product();
+        }
+    }
+
+    private record Entry(Product product, long expiresAt) {
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size, int maxEntries) {
+
+        public double hitRatio() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Filter and order of a {@code GET /products} query. Every condition is optional; prices are
+ * inclusive bounds and the title prefix is matched case-insensitively.
+ *
+ * @param sort the order of the result, {@code null} for the order of the index that serves the query
+ */
+public record ProductFilter(Integer minPrice, Integer maxPrice, String titlePrefix, Sort sort) {
+
+    public enum Sort {
+        PRICE(Comparator.comparingInt(Product::price).thenComparing(Product::id)),
+        TITLE(Comparator.comparing((Product product) -> normalizeTitle(product.title())).thenComparing(Product::id));
+
+        private final Comparator<Product> comparator;
+
+        Sort(Comparator<Product> comparator) {
+            this.comparator = comparator;
+        }
+
+        public Comparator<Product> comparator() {
+            return comparator;
+        }
+
+        public static Sort parse(String name) {
+            return Sort.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public ProductFilter {
+        if (titlePrefix != null && titlePrefix.isEmpty()) {
+            titlePrefix = null;
+        }
+    }
+
+    public boolean matches(Product product) {
+        return (minPrice == null || product.price() >= minPrice)
+                && (maxPrice == null || product.price() <= maxPrice)
+                && (titlePrefix == null || normalizeTitle(product.title()).startsWith(normalizeTitle(titlePrefix)));
+    }
+
+    /**
+     * The form titles are indexed and compared in, see {@code title_lc} in {@link ProductItems}.
+     */
+    static String normalizeTitle(String title) {
+        return title == null ? "" : title.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.service;
+
+import org.example.model.Product;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mapping between {@link Product}s and their DynamoDB items: a {@code products} item, a {@code stocks}
+ * item and the product view item that carries both (see {@link MaterializedProductRepository}).
+ * <p>
+ * Product and view items also carry the keys of the two secondary indexes of their tables:
+ * {@code price_bucket}/{@code price} for {@link #PRICE_INDEX} and {@code title_key}/{@code title_lc}
+ * (the lower-cased title and its first character) for {@link #TITLE_INDEX}. {@code db}'s
+ * {@code IndexBackfill} adds them to items written before the indexes existed.
+ */
+final class ProductItems {
+
+    static final String PRICE_INDEX = "price-index";
+    static final String TITLE_INDEX = "title-index";
+    /** Prices per {@code price_bucket} partition of the price index. */
+    static final int PRICE_BUCKET_WIDTH = 100;
+
+    private ProductItems() {
+    }
+
+    static Map<String, Integer> toStockCounts(Map<String, Map<String, AttributeValue>> stockItems) {
+        Map<String, Integer> stockMap = new HashMap<>(stockItems.size() * 2);
+        stockItems.forEach((productId, stockItem) -> stockMap.put(productId, Integer.parseInt(stockItem.get("count").n())));
+        return stockMap;
+    }
+
+    static List<Product> toProducts(List<Map<String, AttributeValue>> productItems, Map<String, Integer> stockMap) {
+        List<Product> products = new ArrayList<>(productItems.size());
+        for (Map<String, AttributeValue> productItem : productItems) {
+            String productId = productItem.get("id").s();
+            products.add(new Product(
+                    productId,
+                    productItem.get("title").s(),
+                    productItem.get("description").s(),
+                    Integer.parseInt(productItem.get("price").n()),
+                    stockMap.getOrDefault(productId, 0)
+            ));
+        }
+        return products;
+    }
+
+    /**
+     * @param stockItem the stock item, {@code null} or empty for a count of 0; a view item
+     *                  is both the product and the stock item
+     */
+    static Product toProduct(Map<String, AttributeValue> productItem, Map<String, AttributeValue> stockItem) {
+        int count = stockItem == null || stockItem.isEmpty() ? 0 : Integer.parseInt(stockItem.get("count").n());
+        return new Product(
+                productItem.get("id").s(),
+                productItem.get("title").s(),
+                productItem.get("description").s(),
+                Integer.parseInt(productItem.get("price").n()),
+                count
+        );
+    }
+
+    static Map<String, AttributeValue> productItem(Product product) {
+        Map<String, AttributeValue> item = new HashMap<>(12);
+        item.put("id", AttributeValue.builder().s(product.id()).build());
+        item.put("title", AttributeValue.builder().s(product.title()).build());
+        item.put("description", AttributeValue.builder().s(product.description()).build());
+        item.put("price", AttributeValue.builder().n(String.valueOf(product.price())).build());
+        item.put("price_bucket", AttributeValue.builder().n(String.valueOf(priceBucket(product.price()))).build());
+        String titleKey = titleKey(product.title());
+        // index keys cannot be empty strings, products without a title are left out of the title index
+        if (titleKey != null) {
+            item.put("title_key", AttributeValue.builder().s(titleKey).build());
+            item.put("title_lc", AttributeValue.builder().s(ProductFilter.normalizeTitle(product.title())).build());
+        }
+        return item;
+    }
+
+    static int priceBucket(int price) {
+        return Math.floorDiv(price, PRICE_BUCKET_WIDTH);
+    }
+
+    /**
+     * The partition of a title, or of a title prefix, in the title index: its first lower-cased
+     * character, {@code null} for an empty title.
+     */
+    static String titleKey(String title) {
+        String normalized = ProductFilter.normalizeTitle(title);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        return normalized.substring(0, Character.charCount(normalized.codePointAt(0)));
+    }
+
+    static Map<String, AttributeValue> stockItem(Product product) {
+        return Map.of(
+                "product_id", AttributeValue.builder().s(product.id()).build(),
+                "count", AttributeValue.builder().n(String.valueOf(product.count())).build()
+        );
+    }
+
+    static Map<String, AttributeValue> viewItem(Product product) {
+        Map<String, AttributeValue> item = new HashMap<>(productItem(product));
+        item.put("count", AttributeValue.builder().n(String.valueOf(product.count())).build());
+        return item;
+    }
+}
@@ -0,0 +1,231 @@
+package org.example.service;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Writes products as JSON straight from their DynamoDB items into a reusable byte buffer, skipping
+ * the {@link org.example.model.Product} records and Jackson's serializers. The output is byte for
+ * byte what Spring's {@code ObjectMapper} writes for a {@code List<Product>}: fields in record order,
+ * Jackson's string escaping (including surrogates, which it escapes char by char) and UTF-8 for
+ * everything else.
+ * <p>
+ * {@code price} and {@code count} are parsed from the number strings without {@code Integer.parseInt}
+ * and written digit by digit. Not thread-safe; use one codec per response.
+ */
+public class ProductJsonCodec {
+
+    private static final byte[] ID = bytes("{\"id\":");
+    private static final byte[] TITLE = bytes(",\"title\":");
+    private static final byte[] DESCRIPTION = bytes(",\"description\":");
+    private static final byte[] PRICE = bytes(",\"price\":");
+    private static final byte[] COUNT = bytes(",\"count\":");
+    private static final byte[] NULL = bytes("null");
+    private static final byte[] HEX = bytes("0123456789ABCDEF");
+
+    private byte[] buffer;
+    private int size;
+    private boolean inArray;
+    private boolean firstElement;
+
+    public ProductJsonCodec(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public void startArray() {
+        writeByte('[');
+        inArray = true;
+        firstElement = true;
+    }
+
+    public void endArray() {
+        writeByte(']');
+        inArray = false;
+    }
+
+    /**
+     * Appends one product, preceded by a comma if it is not the first element of the current array.
+     *
+     * @param stockItem the product's stock item, {@code null} or empty for a count of 0
+     */
+    public void writeProduct(Map<String, AttributeValue> productItem, Map<String, AttributeValue> stockItem) {
+        if (inArray && !firstElement) {
+            writeByte(',');
+        }
+        firstElement = false;
+
+        writeBytes(ID);
+        writeString(productItem.get("id"));
+        writeBytes(TITLE);
+        writeString(productItem.get("title"));
+        writeBytes(DESCRIPTION);
+        writeString(productItem.get("description"));
+        writeBytes(PRICE);
+        writeInt(parseInt(productItem.get("price").n()));
+        writeBytes(COUNT);
+        writeInt(stockItem == null || stockItem.isEmpty() ? 0 : parseInt(stockItem.get("count").n()));
+        writeByte('}');
+    }
+
+    /**
+     * Writes the buffered bytes to {@code outputStream} and empties the buffer for reuse.
+     */
+    public void flushTo(OutputStream outputStream) throws IOException {
+        outputStream.write(buffer, 0, size);
+        size = 0;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Parses a DynamoDB number that must hold an {@code int}: ASCII digits with an optional sign,
+     * rejecting what {@link Integer#parseInt(String)} would reject for such input.
+     */
+    static int parseInt(CharSequence digits) {
+        int length = digits.length();
+        if (length == 0) {
+            throw new NumberFormatException("Empty number");
+        }
+
+        int index = 0;
+        boolean negative = digits.charAt(0) == '-';
+        if (negative || digits.charAt(0) == '+') {
+            if (length == 1) {
+                throw new NumberFormatException("For input string: \"" + digits + "\"");
+            }
+            index = 1;
+        }
+
+        // accumulate negatively, so Integer.MIN_VALUE does not overflow
+        long limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        long value = 0;
+        for (; index < length; index++) {
+            int digit = digits.charAt(index) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("For input string: \"" + digits + "\"");
+            }
+            value = value * 10 - digit;
+            if (value < limit) {
+                throw new NumberFormatException("For input string: \"" + digits + "\"");
+            }
+        }
+        return (int) (negative ? value : -value);
+    }
+
+    private void writeInt(int value) {
+        ensureCapacity(11);
+        long remaining = value;
+        if (remaining < 0) {
+            buffer[size++] = '-';
+            remaining = -remaining;
+        }
+
+        int digits = 1;
+        for (long bound = 10; remaining >= bound && digits < 10; bound *= 10) {
+            digits++;
+        }
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        size += digits;
+    }
+
+    private void writeString(AttributeValue value) {
+        if (value == null || value.s() == null) {
+            writeBytes(NULL);
+            return;
+        }
+
+        String text = value.s();
+        // worst case is six bytes per char, for chars written as backslash-u escapes
+        ensureCapacity(text.length() * 6 + 2);
+        byte[] out = buffer;
+        int position = size;
+        out[position++] = '"';
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    out[position++] = (byte) c;
+                } else {
+                    position = writeEscape(out, position, c);
+                }
+            } else if (c < 0x800) {
+                out[position++] = (byte) (0xC0 | (c >> 6));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Jackson escapes surrogates one char at a time instead of encoding the code point
+                position = writeUnicodeEscape(out, position, c);
+            } else {
+                out[position++] = (byte) (0xE0 | (c >> 12));
+                out[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        out[position++] = '"';
+        size = position;
+    }
+
+    // the escapes of Jackson's default CharacterEscapes
+    private static int writeEscape(byte[] out, int position, char c) {
+        char shortEscape = switch (c) {
+            case '"' -> '"';
+            case '\\' -> '\\';
+            case '\b' -> 'b';
+            case '\t' -> 't';
+            case '\n' -> 'n';
+            case '\f' -> 'f';
+            case '\r' -> 'r';
+            default -> 0;
+        };
+        if (shortEscape == 0) {
+            return writeUnicodeEscape(out, position, c);
+        }
+        out[position++] = '\\';
+        out[position++] = (byte) shortEscape;
+        return position;
+    }
+
+    private static int writeUnicodeEscape(byte[] out, int position, char c) {
+        out[position++] = '\\';
+        out[position++] = 'u';
+        out[position++] = HEX[c >> 12];
+        out[position++] = HEX[(c >> 8) & 0xF];
+        out[position++] = HEX[(c >> 4) & 0xF];
+        out[position++] = HEX[c & 0xF];
+        return position;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeByte(char c) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) c;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (size + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+        }
+    }
+
+    private static byte[] bytes(String ascii) {
+        return ascii.getBytes(StandardCharsets.US_ASCII);
+    }
+}
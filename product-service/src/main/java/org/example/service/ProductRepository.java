@@ -0,0 +1,47 @@
+package org.example.service;
+
+import org.example.model.BatchGetResult;
+import org.example.model.Product;
+import org.example.model.ProductPage;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * Where {@link ProductService} reads products from: {@link JoinProductRepository} joins the
+ * {@code products} and {@code stocks} tables on every read, {@link MaterializedProductRepository}
+ * reads the denormalized product view, one item per product. Selected with {@code PRODUCT_READ_SOURCE}.
+ */
+public interface ProductRepository {
+
+    Optional<Product> findById(String productId);
+
+    /**
+     * @param productIds distinct ids
+     */
+    BatchGetResult findByIds(List<String> productIds);
+
+    /**
+     * @throws InvalidCursorException if the cursor is malformed
+     */
+    ProductPage findPage(int limit, String cursor);
+
+    /**
+     * Hands out the whole catalog a page at a time: the product items of the page and their stock
+     * items keyed by product id. Calls to {@code pageConsumer} never overlap.
+     */
+    void forEachItemPage(BiConsumer<List<Map<String, AttributeValue>>, Map<String, Map<String, AttributeValue>>> pageConsumer);
+
+    /**
+     * Like {@link #forEachItemPage}, for the items a {@code Query} on one of the secondary indexes
+     * of the repository's table returns, page by page in index order.
+     *
+     * @param query the query without a table name
+     */
+    void forEachQueryPage(QueryRequest query,
+                          BiConsumer<List<Map<String, AttributeValue>>, Map<String, Map<String, AttributeValue>>> pageConsumer);
+}
@@ -0,0 +1,155 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Keeps a {@link ProductSearchIndex} of the catalog current. The index is built from a full read of
+ * the catalog on the first search, or at startup with {@code SEARCH_INDEX_PRELOAD}. Writes made by
+ * this instance are applied to it as they happen; writes made elsewhere (other instances, {@code db}'s
+ * loaders) show up when the index is rebuilt, in the background, by the first search after the index
+ * has grown older than the refresh interval. Searches keep using the old index until the new one is
+ * ready, and writes made during a rebuild are replayed on the new index before it replaces the old one.
+ */
+public class ProductSearch {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearch.class);
+
+    private final Consumer<Consumer<List<Product>>> catalog;
+    private final Executor rebuildExecutor;
+    private final long refreshNanos;
+
+    private final Object lock = new Object();
+    private volatile ProductSearchIndex index;
+    private volatile long builtAt;
+    // guarded by lock
+    private CompletableFuture<ProductSearchIndex> rebuild;
+    private List<Consumer<ProductSearchIndex>> changesDuringRebuild;
+
+    /**
+     * @param catalog         hands out the whole catalog page by page, see {@link ProductService#forEachProductPage}
+     * @param refreshSeconds  age after which a search triggers a rebuild, {@code 0} to never rebuild
+     */
+    public ProductSearch(Consumer<Consumer<List<Product>>> catalog, Executor rebuildExecutor, long refreshSeconds) {
+        this.catalog = catalog;
+        this.rebuildExecutor = rebuildExecutor;
+        this.refreshNanos = refreshSeconds * 1_000_000_000L;
+    }
+
+    public List<ProductSearchIndex.Hit> search(String query, int limit) {
+        return current().search(query, limit);
+    }
+
+    /**
+     * Starts building the index without waiting for it.
+     */
+    public void preload() {
+        rebuild();
+    }
+
+    /**
+     * Applies a created product to the index, and to the one being built, if any.
+     */
+    public void onProductWritten(Product product) {
+        apply(index -> index.add(product));
+    }
+
+    public void onStockWritten(String productId, int count) {
+        apply(index -> index.updateCount(productId, count));
+    }
+
+    private void apply(Consumer<ProductSearchIndex> change) {
+        synchronized (lock) {
+            ProductSearchIndex current = index;
+            if (current != null) {
+                change.accept(current);
+            }
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        }
+    }
+
+    private ProductSearchIndex current() {
+        ProductSearchIndex current = index;
+        if (current == null) {
+            // nothing to answer from yet, wait for the first build
+            return join(rebuild());
+        }
+        if (refreshNanos > 0 && System.nanoTime() - builtAt > refreshNanos) {
+            rebuild();
+        }
+        return current;
+    }
+
+    private CompletableFuture<ProductSearchIndex> rebuild() {
+        CompletableFuture<ProductSearchIndex> started;
+        synchronized (lock) {
+            if (rebuild != null) {
+                return rebuild;
+            }
+            started = new CompletableFuture<>();
+            rebuild = started;
+            changesDuringRebuild = new ArrayList<>();
+        }
+
+        // submitted outside the lock, an executor may run the build on this thread
+        rebuildExecutor.execute(() -> {
+            try {
+                started.complete(build());
+            } catch (RuntimeException e) {
+                started.completeExceptionally(e);
+            }
+        });
+        return started;
+    }
+
+    private ProductSearchIndex build() {
+        long start = System.nanoTime();
+        ProductSearchIndex current = index;
+        ProductSearchIndex next = new ProductSearchIndex(current == null ? 1024 : current.size());
+        try {
+            catalog.accept(next::addAll);
+            next.trimToSize();
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                rebuild = null;
+                changesDuringRebuild = null;
+            }
+            logger.error("Failed to build the product search index: {}", e.getMessage());
+            throw e;
+        }
+
+        synchronized (lock) {
+            for (Consumer<ProductSearchIndex> change : changesDuringRebuild) {
+                change.accept(next);
+            }
+            index = next;
+            builtAt = System.nanoTime();
+            rebuild = null;
+            changesDuringRebuild = null;
+        }
+        logger.info("Built product search index of {} products and {} tokens in {} ms",
+                next.size(), next.tokenCount(), (System.nanoTime() - start) / 1_000_000);
+        return next;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
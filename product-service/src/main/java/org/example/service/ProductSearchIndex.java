@@ -0,0 +1,375 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the {@code title} and {@code description} of products, ranked with
+ * BM25. Each token maps to a posting list of int document ids with their term frequencies; a title
+ * token counts {@link #TITLE_WEIGHT} times. Documents are numbered in insertion order and hold the
+ * indexed {@link Product}, so a search answers without a DynamoDB read.
+ * <p>
+ * Re-adding a product appends a new document and marks the old one deleted; deleted documents stay
+ * in the posting lists, and in the document frequencies of their tokens, until the index is rebuilt
+ * (see {@link ProductSearch}). Thread-safe: searches share a read lock, changes take the write lock.
+ */
+public class ProductSearchIndex {
+
+    static final int TITLE_WEIGHT = 2;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<String, Integer> documentIds = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private Product[] documents;
+    private int[] lengths;
+    private int documentCount;
+    private int liveDocuments;
+    private long totalLength;
+    private volatile TermWeights termWeights;
+
+    public ProductSearchIndex(int expectedDocuments) {
+        this.documents = new Product[Math.max(16, expectedDocuments)];
+        this.lengths = new int[documents.length];
+    }
+
+    /**
+     * A search result: the product as it was indexed and its BM25 score.
+     */
+    public record Hit(Product product, float score) {
+    }
+
+    public void addAll(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            for (Product product : products) {
+                addLocked(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes a product, replacing an earlier version with the same id.
+     */
+    public void add(Product product) {
+        addAll(List.of(product));
+    }
+
+    /**
+     * Replaces the stored stock count of an indexed product; the count is not indexed.
+     */
+    public void updateCount(String productId, int count) {
+        lock.writeLock().lock();
+        try {
+            Integer document = documentIds.get(productId);
+            if (document != null) {
+                Product product = documents[document];
+                documents[document] = new Product(product.id(), product.title(), product.description(), product.price(), count);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Shrinks the posting lists and document arrays to their sizes, once a bulk build is done.
+     */
+    public void trimToSize() {
+        lock.writeLock().lock();
+        try {
+            for (Postings list : postings.values()) {
+                list.trimToSize();
+            }
+            documents = Arrays.copyOf(documents, Math.max(16, documentCount));
+            lengths = Arrays.copyOf(lengths, documents.length);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocuments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int tokenCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The best {@code limit} products for any of the query's tokens, highest score first and
+     * ties in insertion order.
+     */
+    public List<Hit> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveDocuments == 0) {
+                return List.of();
+            }
+            TermWeights weights = termWeights();
+            List<Postings> lists = new ArrayList<>(terms.size());
+            long postingCount = 0;
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list != null) {
+                    lists.add(list);
+                    postingCount += list.size;
+                }
+            }
+
+            // few postings: list the scored documents; many: walk every score afterwards instead
+            boolean listScored = postingCount < documentCount / 8;
+            int[] scored = listScored ? new int[(int) postingCount] : null;
+            int scoredCount = 0;
+            boolean anyDeleted = !deleted.isEmpty();
+            float[] scores = new float[documentCount];
+            for (Postings list : lists) {
+                float idf = (float) Math.log(1 + (liveDocuments - list.size + 0.5) / (list.size + 0.5));
+                int[] documents = list.documents;
+                byte[] frequencies = list.frequencies;
+                for (int i = 0; i < list.size; i++) {
+                    int document = documents[i];
+                    if (anyDeleted && deleted.get(document)) {
+                        continue;
+                    }
+                    if (listScored && scores[document] == 0) {
+                        scored[scoredCount++] = document;
+                    }
+                    scores[document] += idf * weights.of(frequencies[i] & 0xFF, lengths[document]);
+                }
+            }
+            return listScored ? topHits(scores, scored, scoredCount, limit) : topHits(scores, null, scores.length, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lower-cased runs of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i < lower.length(); ) {
+            int codePoint = lower.codePointAt(i);
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (start >= 0) {
+            tokens.add(lower.substring(start));
+        }
+        return tokens;
+    }
+
+    private void addLocked(Product product) {
+        Integer previous = documentIds.get(product.id());
+        if (previous != null) {
+            deleted.set(previous);
+            documents[previous] = null;
+            liveDocuments--;
+            totalLength -= lengths[previous];
+        }
+
+        int document = documentCount++;
+        if (document == documents.length) {
+            documents = Arrays.copyOf(documents, document * 2);
+            lengths = Arrays.copyOf(lengths, document * 2);
+        }
+        documents[document] = product;
+        documentIds.put(product.id(), document);
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokenize(product.title())) {
+            frequencies.merge(token, TITLE_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(product.description())) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), token -> new Postings()).add(document, entry.getValue());
+            length += entry.getValue();
+        }
+        lengths[document] = length;
+        liveDocuments++;
+        totalLength += length;
+    }
+
+    /**
+     * Selects the best {@code limit} scored documents with a min-heap on their scores.
+     *
+     * @param candidates the scored documents, or {@code null} to consider the first {@code count} documents
+     */
+    private List<Hit> topHits(float[] scores, int[] candidates, int count, int limit) {
+        int[] heap = new int[limit];
+        int heapSize = 0;
+        for (int i = 0; i < count; i++) {
+            int document = candidates == null ? i : candidates[i];
+            if (scores[document] == 0) {
+                continue;
+            }
+            if (heapSize < heap.length) {
+                heap[heapSize] = document;
+                siftUp(heap, heapSize++, scores);
+            } else if (better(document, heap[0], scores)) {
+                heap[0] = document;
+                siftDown(heap, heapSize, scores);
+            }
+        }
+
+        Hit[] hits = new Hit[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            int document = heap[0];
+            hits[i] = new Hit(documents[document], scores[document]);
+            heap[0] = heap[i];
+            siftDown(heap, i, scores);
+        }
+        return Arrays.asList(hits);
+    }
+
+    /**
+     * The weights for the current average document length, reused until a change moves it.
+     * Racing searches may each build them; the result is the same.
+     */
+    private TermWeights termWeights() {
+        TermWeights current = termWeights;
+        if (current == null || current.liveDocuments != liveDocuments || current.totalLength != totalLength) {
+            current = new TermWeights(liveDocuments, totalLength);
+            termWeights = current;
+        }
+        return current;
+    }
+
+    private static boolean better(int document, int other, float[] scores) {
+        return scores[document] > scores[other] || (scores[document] == scores[other] && document < other);
+    }
+
+    private static void siftUp(int[] heap, int index, float[] scores) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!better(heap[parent], heap[index], scores)) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, float[] scores) {
+        int index = 0;
+        while (true) {
+            int worst = index;
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                if (better(heap[worst], heap[child], scores)) {
+                    worst = child;
+                }
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(heap, worst, index);
+            index = worst;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+
+    /**
+     * The term-frequency part of BM25, {@code tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength))},
+     * precomputed for small frequencies and lengths, which cover nearly every posting, so scoring
+     * a posting is a table lookup instead of a division.
+     */
+    private static final class TermWeights {
+        private static final int MAX_TABLE_FREQUENCY = 32;
+        private static final int MAX_TABLE_LENGTH = 256;
+
+        final int liveDocuments;
+        final long totalLength;
+        private final float normBase;
+        private final float normPerToken;
+        private final float[] table = new float[MAX_TABLE_FREQUENCY * MAX_TABLE_LENGTH];
+
+        TermWeights(int liveDocuments, long totalLength) {
+            this.liveDocuments = liveDocuments;
+            this.totalLength = totalLength;
+            this.normBase = K1 * (1 - B);
+            this.normPerToken = totalLength == 0 ? 0 : K1 * B * liveDocuments / totalLength;
+            for (int frequency = 1; frequency < MAX_TABLE_FREQUENCY; frequency++) {
+                for (int length = 0; length < MAX_TABLE_LENGTH; length++) {
+                    table[frequency * MAX_TABLE_LENGTH + length] = compute(frequency, length);
+                }
+            }
+        }
+
+        float of(int frequency, int length) {
+            if (frequency < MAX_TABLE_FREQUENCY && length < MAX_TABLE_LENGTH) {
+                return table[frequency * MAX_TABLE_LENGTH + length];
+            }
+            return compute(frequency, length);
+        }
+
+        private float compute(int frequency, int length) {
+            return frequency * (K1 + 1) / (frequency + normBase + normPerToken * length);
+        }
+    }
+
+    /**
+     * Document ids in ascending order with their term frequencies, saturated at 255.
+     */
+    private static final class Postings {
+        int[] documents = new int[2];
+        byte[] frequencies = new byte[2];
+        int size;
+
+        void add(int document, int frequency) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            documents[size] = document;
+            frequencies[size] = (byte) Math.min(255, frequency);
+            size++;
+        }
+
+        void trimToSize() {
+            documents = Arrays.copyOf(documents, size);
+            frequencies = Arrays.copyOf(frequencies, size);
+        }
+    }
+}
@@ -1,120 +1,583 @@
 package org.example.service;
 
+import org.example.dynamodb.DynamoDbClientFactory;
+import org.example.metrics.Metrics;
+import org.example.model.BatchGetResult;
+import org.example.model.BulkCreateResult;
 import org.example.model.Product;
+import org.example.model.ProductPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.example.service.ProductItems.productItem;
+import static org.example.service.ProductItems.stockItem;
+import static org.example.service.ProductItems.toProducts;
+import static org.example.service.ProductItems.toStockCounts;
+import static org.example.service.ProductItems.viewItem;
 
 @Service
 public class ProductService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
+
+    private static final int DEFAULT_SCAN_SEGMENTS = 4;
+    private static final int DEFAULT_SCAN_THREADS = 8;
+    private static final int DEFAULT_JOIN_THREADS = 4;
+    private static final int DEFAULT_BULK_WRITE_THREADS = 4;
+    /** The TransactWriteItems maximum. */
+    private static final int MAX_TRANSACT_ACTIONS = 100;
+    private static final int DEFAULT_CACHE_TTL_SECONDS = 30;
+    private static final int DEFAULT_CACHE_MAX_ENTRIES = 10_000;
+    private static final int DEFAULT_SEARCH_INDEX_REFRESH_SECONDS = 300;
+    private static final int DEFAULT_STOCK_FLUSH_MILLIS = 1000;
+    private static final int DEFAULT_STOCK_FLUSH_MAX_PENDING = 500;
+    private static final int DEFAULT_STOCK_FLUSH_THREADS = 4;
+    /** Price buckets a price range may span before {@link #findProducts} scans instead of querying each. */
+    static final int MAX_PRICE_BUCKET_QUERIES = 20;
+    private static final Comparator<Product> BY_ID = Comparator.comparing(Product::id);
+
     private final DynamoDbClient dynamoDb;
+    private final boolean virtualThreads;
     private final String productsTable;
     private final String stocksTable;
+    private final String viewTable;
+    private final ProductRepository repository;
+    private final int bulkChunkSize;
+    private final ExecutorService bulkWriteExecutor;
+    private final ProductCache cache;
+    private final ProductSearch search;
+    private final StockReservations reservations;
+    private final StockWriteBehind stockWriteBehind;
+    // see getCatalogVersion
+    private final String catalogInstance = UUID.randomUUID().toString();
+    private final AtomicLong catalogWrites = new AtomicLong();
+    private final long catalogVersionMillis;
+
+    /**
+     * How {@link #getProductById(String)} reads the product and stock items on a cache miss.
+     */
+    public enum ReadMode {
+        /** Two GetItem calls, one after the other. */
+        SYNC,
+        /** Two GetItem calls issued concurrently on the async client. */
+        ASYNC,
+        /** One TransactGetItems call for both items. */
+        TRANSACT;
+
+        static ReadMode fromEnv() {
+            return Optional.ofNullable(System.getenv("PRODUCT_READ_MODE"))
+                    .map(mode -> ReadMode.valueOf(mode.toUpperCase(Locale.ROOT)))
+                    .orElse(SYNC);
+        }
+    }
+
+    /**
+     * Which {@link ProductRepository} serves the reads.
+     */
+    public enum ReadSource {
+        /** The {@code products} and {@code stocks} tables, joined per read. */
+        JOIN,
+        /** The product view table, one item per product. */
+        VIEW;
+
+        static ReadSource fromEnv() {
+            return Optional.ofNullable(System.getenv("PRODUCT_READ_SOURCE"))
+                    .map(source -> ReadSource.valueOf(source.toUpperCase(Locale.ROOT)))
+                    .orElse(JOIN);
+        }
+    }
 
     public ProductService() {
-        this.dynamoDb = DynamoDbClient.create();
-        String productsTableName = System.getenv("PRODUCTS_TABLE_NAME");
-        String stocksTableName = System.getenv("STOCKS_TABLE_NAME");
-        String products = Optional.ofNullable(productsTableName).orElse("products");
-        String stocks = Optional.ofNullable(stocksTableName).orElse("stocks");
-        this.productsTable = products;
-        this.stocksTable = stocks;
+        this(DynamoDbClientFactory.fromEnv().withCallListener(Metrics.shared().dynamoDbCallListener()));
+        Metrics.shared().register("ProductCache", this::cacheMetrics);
+        if (stockWriteBehind != null) {
+            Metrics.shared().register("StockWriteBehind", this::stockWriteBehindMetrics);
+        }
+    }
+
+    private ProductService(DynamoDbClientFactory clients) {
+        this(clients.createClient(),
+                ReadSource.fromEnv() == ReadSource.JOIN && ReadMode.fromEnv() == ReadMode.ASYNC
+                        ? clients.createAsyncClient()
+                        : null,
+                Optional.ofNullable(System.getenv("PRODUCTS_TABLE_NAME")).orElse("products"),
+                Optional.ofNullable(System.getenv("STOCKS_TABLE_NAME")).orElse("stocks"),
+                System.getenv("PRODUCT_VIEW_TABLE_NAME"));
     }
 
+    /**
+     * @param viewTable the product view table, or {@code null} if there is none. When set, every
+     *                  write keeps it in sync; reads use it with {@code PRODUCT_READ_SOURCE=view}
+     */
+    public ProductService(DynamoDbClient dynamoDb, DynamoDbAsyncClient dynamoDbAsync,
+                          String productsTable, String stocksTable, String viewTable) {
+        this.dynamoDb = dynamoDb;
+        this.productsTable = productsTable;
+        this.stocksTable = stocksTable;
+        this.viewTable = viewTable;
+        this.virtualThreads = Boolean.parseBoolean(System.getenv("VIRTUAL_THREADS_ENABLED"));
+
+        int segments = intEnv("SCAN_TOTAL_SEGMENTS", DEFAULT_SCAN_SEGMENTS);
+        int threads = Math.min(segments, intEnv("SCAN_MAX_THREADS", DEFAULT_SCAN_THREADS));
+        ParallelScanner scanner = new ParallelScanner(dynamoDb, newExecutor("product-scan", threads), segments);
+        if (ReadSource.fromEnv() == ReadSource.VIEW) {
+            if (viewTable == null) {
+                throw new IllegalArgumentException("PRODUCT_READ_SOURCE=view requires PRODUCT_VIEW_TABLE_NAME");
+            }
+            this.repository = new MaterializedProductRepository(dynamoDb, viewTable, scanner);
+        } else {
+            this.repository = new JoinProductRepository(dynamoDb, dynamoDbAsync, ReadMode.fromEnv(),
+                    productsTable, stocksTable, scanner,
+                    newExecutor("stock-join", intEnv("STOCK_JOIN_THREADS", DEFAULT_JOIN_THREADS)));
+        }
+
+        // two or three actions per product, see putItems
+        this.bulkChunkSize = MAX_TRANSACT_ACTIONS / (viewTable == null ? 2 : 3);
+        this.bulkWriteExecutor = newExecutor("bulk-write", intEnv("BULK_WRITE_THREADS", DEFAULT_BULK_WRITE_THREADS));
+        int cacheTtlSeconds = intEnv("PRODUCT_CACHE_TTL_SECONDS", DEFAULT_CACHE_TTL_SECONDS);
+        this.cache = new ProductCache(cacheTtlSeconds, TimeUnit.SECONDS,
+                intEnv("PRODUCT_CACHE_MAX_ENTRIES", DEFAULT_CACHE_MAX_ENTRIES));
+        this.catalogVersionMillis = TimeUnit.SECONDS.toMillis(cacheTtlSeconds);
+        this.search = new ProductSearch(this::forEachProductPage, newExecutor("search-index", 1),
+                intEnv("SEARCH_INDEX_REFRESH_SECONDS", DEFAULT_SEARCH_INDEX_REFRESH_SECONDS));
+        if (Boolean.parseBoolean(System.getenv("SEARCH_INDEX_PRELOAD"))) {
+            search.preload();
+        }
+        this.reservations = new StockReservations(dynamoDb, stocksTable, viewTable, this::onStockChanged);
+        if (Boolean.parseBoolean(System.getenv("STOCK_WRITE_BEHIND_ENABLED"))) {
+            // a frozen or reclaimed Lambda instance neither flushes nor runs the shutdown hook
+            if (System.getenv("AWS_LAMBDA_RUNTIME_API") != null) {
+                throw new IllegalArgumentException("STOCK_WRITE_BEHIND_ENABLED=true requires the long-running server, not Lambda");
+            }
+            this.stockWriteBehind = new StockWriteBehind(reservations::release,
+                    newExecutor("stock-write", intEnv("STOCK_FLUSH_THREADS", DEFAULT_STOCK_FLUSH_THREADS)),
+                    intEnv("STOCK_FLUSH_INTERVAL_MILLIS", DEFAULT_STOCK_FLUSH_MILLIS),
+                    intEnv("STOCK_FLUSH_MAX_PENDING", DEFAULT_STOCK_FLUSH_MAX_PENDING));
+            Runtime.getRuntime().addShutdownHook(new Thread(stockWriteBehind::close, "stock-flush-shutdown"));
+        } else {
+            this.stockWriteBehind = null;
+        }
+    }
+
+    /**
+     * The whole catalog in id order, so that the same products always give the same list.
+     */
     public List<Product> getAllProducts() {
-        ScanRequest scanProducts = ScanRequest.builder().tableName(productsTable).build();
-        ScanResponse productsResponse = dynamoDb.scan(scanProducts);
+        List<Product> products = new ArrayList<>();
+        forEachProductPage(products::addAll);
+        products.sort(BY_ID);
+        return products;
+    }
+
+    /**
+     * Changes with every product and stock write made through this service, and when the current
+     * {@code PRODUCT_CACHE_TTL_SECONDS} window of the wall clock ends, so that writes made through
+     * other instances are noticed no later than the product cache notices them. A list read after
+     * taking the version reflects every write it counts, so a conditional list request can be
+     * answered from the version alone, before anything is read.
+     */
+    public String getCatalogVersion() {
+        long window = catalogVersionMillis > 0 ? System.currentTimeMillis() / catalogVersionMillis : System.nanoTime();
+        return catalogInstance + ":" + catalogWrites.get() + ":" + window;
+    }
 
-        ScanRequest scanStocks = ScanRequest.builder().tableName(stocksTable).build();
-        ScanResponse stocksResponse = dynamoDb.scan(scanStocks);
+    /**
+     * Streams the catalog one scan page at a time, so callers never have to hold more than
+     * a few pages of products in memory. Calls to {@code pageConsumer} never overlap.
+     */
+    public void forEachProductPage(Consumer<List<Product>> pageConsumer) {
+        forEachItemPage((productItems, stockItems) -> pageConsumer.accept(toProducts(productItems, toStockCounts(stockItems))));
+    }
+
+    /**
+     * Like {@link #forEachProductPage}, but hands out the raw items: a scanned page of product items
+     * and their stock items keyed by product id, for callers that serialize items directly
+     * (see {@link ProductJsonCodec}).
+     */
+    public void forEachItemPage(
+            BiConsumer<List<Map<String, AttributeValue>>, Map<String, Map<String, AttributeValue>>> pageConsumer) {
+        repository.forEachItemPage(pageConsumer);
+    }
 
-        Map<String, Integer> stockMap = stocksResponse.items().stream()
-                .collect(Collectors.toMap(
-                        item -> item.get("product_id").s(),
-                        item -> Integer.parseInt(item.get("count").n())
-                ));
+    /**
+     * Reads up to {@code limit} products starting after {@code cursor}, a token returned as
+     * {@link ProductPage#nextCursor()} by a previous call ({@code null} for the first page).
+     *
+     * @throws InvalidCursorException if the cursor is malformed
+     */
+    public ProductPage getProductsPage(int limit, String cursor) {
+        return repository.findPage(limit, cursor);
+    }
 
+    /**
+     * The products matching {@code filter}, in {@link ProductFilter#sort()} order, or in the order of
+     * the index that serves the query, ties broken by id. A title prefix is
+     * looked up in the title index and a price range of at most {@link #MAX_PRICE_BUCKET_QUERIES}
+     * buckets in the price index, one query per bucket; only other filters scan the catalog. Results
+     * come in index order and are sorted in memory only when another order is asked for.
+     * <p>
+     * The price index is read from price 0 when there is no {@code minPrice}; products are created
+     * with positive prices only.
+     */
+    public List<Product> findProducts(ProductFilter filter) {
         List<Product> products = new ArrayList<>();
-        for (Map<String, AttributeValue> productItem : productsResponse.items()) {
-            String productId = productItem.get("id").s();
-            products.add(new Product(
-                    productId,
-                    productItem.get("title").s(),
-                    productItem.get("description").s(),
-                    Integer.parseInt(productItem.get("price").n()),
-                    stockMap.getOrDefault(productId, 0)
-            ));
+        Consumer<List<Product>> collector = page -> {
+            for (Product product : page) {
+                if (filter.matches(product)) {
+                    products.add(product);
+                }
+            }
+        };
+
+        ProductFilter.Sort order;
+        if (filter.titlePrefix() != null) {
+            queryTitleIndex(filter, collector);
+            order = ProductFilter.Sort.TITLE;
+        } else if (filter.maxPrice() != null && priceBucketCount(filter) <= MAX_PRICE_BUCKET_QUERIES) {
+            queryPriceIndex(filter, collector);
+            order = ProductFilter.Sort.PRICE;
+        } else {
+            forEachProductPage(collector);
+            order = null;
         }
 
+        // also when already in index order, which leaves products with equal keys in no fixed order;
+        // sorting a sorted list only takes one pass
+        ProductFilter.Sort sort = filter.sort() != null ? filter.sort() : order;
+        products.sort(sort != null ? sort.comparator() : BY_ID);
         return products;
     }
 
-    public Optional<Product> getProductById(String productId) {
-        GetItemRequest productRequest = GetItemRequest.builder()
-                .tableName(productsTable)
-                .key(Map.of("id", AttributeValue.builder().s(productId).build()))
-                .build();
+    private static int priceBucketCount(ProductFilter filter) {
+        int minPrice = filter.minPrice() == null ? 0 : filter.minPrice();
+        if (minPrice > filter.maxPrice()) {
+            return 0;
+        }
+        return ProductItems.priceBucket(filter.maxPrice()) - ProductItems.priceBucket(minPrice) + 1;
+    }
 
-        Map<String, AttributeValue> productItem = dynamoDb.getItem(productRequest).item();
-        if (productItem.isEmpty()) {
-            return Optional.empty();
+    private void queryTitleIndex(ProductFilter filter, Consumer<List<Product>> pageConsumer) {
+        String prefix = ProductFilter.normalizeTitle(filter.titlePrefix());
+        Map<String, String> names = new HashMap<>(Map.of("#key", "title_key", "#title", "title_lc"));
+        Map<String, AttributeValue> values = new HashMap<>(Map.of(
+                ":key", AttributeValue.builder().s(ProductItems.titleKey(prefix)).build(),
+                ":prefix", AttributeValue.builder().s(prefix).build()));
+        QueryRequest.Builder query = QueryRequest.builder()
+                .indexName(ProductItems.TITLE_INDEX)
+                .keyConditionExpression("#key = :key AND begins_with(#title, :prefix)");
+
+        // price bounds are applied by DynamoDB so non-matching items are not returned,
+        // they still count against the read capacity of the query
+        List<String> conditions = new ArrayList<>(2);
+        if (filter.minPrice() != null) {
+            conditions.add("#price >= :minPrice");
+            values.put(":minPrice", AttributeValue.builder().n(String.valueOf(filter.minPrice())).build());
+        }
+        if (filter.maxPrice() != null) {
+            conditions.add("#price <= :maxPrice");
+            values.put(":maxPrice", AttributeValue.builder().n(String.valueOf(filter.maxPrice())).build());
+        }
+        if (!conditions.isEmpty()) {
+            names.put("#price", "price");
+            query.filterExpression(String.join(" AND ", conditions));
         }
 
-        GetItemRequest stockRequest = GetItemRequest.builder()
-                .tableName(stocksTable)
-                .key(Map.of("product_id", AttributeValue.builder().s(productId).build()))
-                .build();
+        repository.forEachQueryPage(query.expressionAttributeNames(names).expressionAttributeValues(values).build(),
+                (productItems, stockItems) -> pageConsumer.accept(toProducts(productItems, toStockCounts(stockItems))));
+    }
 
-        Map<String, AttributeValue> stockItem = dynamoDb.getItem(stockRequest).item();
-        int count = stockItem.isEmpty() ? 0 : Integer.parseInt(stockItem.get("count").n());
+    /**
+     * Queries the buckets of the range in ascending order, so the products come out sorted by price.
+     */
+    private void queryPriceIndex(ProductFilter filter, Consumer<List<Product>> pageConsumer) {
+        int minPrice = filter.minPrice() == null ? 0 : filter.minPrice();
+        int maxPrice = filter.maxPrice();
+        if (minPrice > maxPrice) {
+            // BETWEEN rejects an empty range
+            return;
+        }
+        for (int bucket = ProductItems.priceBucket(minPrice); bucket <= ProductItems.priceBucket(maxPrice); bucket++) {
+            QueryRequest query = QueryRequest.builder()
+                    .indexName(ProductItems.PRICE_INDEX)
+                    .keyConditionExpression("#bucket = :bucket AND #price BETWEEN :minPrice AND :maxPrice")
+                    .expressionAttributeNames(Map.of("#bucket", "price_bucket", "#price", "price"))
+                    .expressionAttributeValues(Map.of(
+                            ":bucket", AttributeValue.builder().n(String.valueOf(bucket)).build(),
+                            ":minPrice", AttributeValue.builder().n(String.valueOf(minPrice)).build(),
+                            ":maxPrice", AttributeValue.builder().n(String.valueOf(maxPrice)).build()))
+                    .build();
+            repository.forEachQueryPage(query,
+                    (productItems, stockItems) -> pageConsumer.accept(toProducts(productItems, toStockCounts(stockItems))));
+        }
+    }
 
-        Product product = new Product(
-                productId,
-                productItem.get("title").s(),
-                productItem.get("description").s(),
-                Integer.parseInt(productItem.get("price").n()),
-                count
-        );
+    public Optional<Product> getProductById(String productId) {
+        return cache.get(productId, repository::findById);
+    }
 
-        return Optional.of(product);
+    /**
+     * Full-text search over titles and descriptions, best matches first, served from the in-memory
+     * {@link ProductSearchIndex}. Stock counts are those of the last index build or of this instance's
+     * own writes since.
+     */
+    public List<Product> searchProducts(String query, int limit) {
+        List<ProductSearchIndex.Hit> hits = search.search(query, limit);
+        List<Product> products = new ArrayList<>(hits.size());
+        for (ProductSearchIndex.Hit hit : hits) {
+            products.add(hit.product());
+        }
+        return products;
     }
 
-    public Product createProduct(String title, String description, int price, int count) {
-        String productId = UUID.randomUUID().toString(); // Генерируем UUID
+    public ProductCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
 
-        Map<String, AttributeValue> productItem = Map.of(
-                "id", AttributeValue.builder().s(productId).build(),
-                "title", AttributeValue.builder().s(title).build(),
-                "description", AttributeValue.builder().s(description).build(),
-                "price", AttributeValue.builder().n(String.valueOf(price)).build()
-        );
+    private List<Metrics.Value> cacheMetrics() {
+        ProductCache.Stats stats = getCacheStats();
+        return List.of(
+                Metrics.Value.counter("CacheHits", stats.hits()),
+                Metrics.Value.counter("CacheMisses", stats.misses()),
+                Metrics.Value.counter("CacheEvictions", stats.evictions()),
+                Metrics.Value.gauge("CacheSize", stats.size(), "Count"));
+    }
 
-        Map<String, AttributeValue> stockItem = Map.of(
-                "product_id", AttributeValue.builder().s(productId).build(),
-                "count", AttributeValue.builder().n(String.valueOf(count)).build()
-        );
+    /**
+     * Looks up several products at once with {@code BatchGetItem}.
+     * Duplicate ids are returned once; ids without a product are listed in
+     * {@link BatchGetResult#missingIds()} instead of failing the lookup.
+     */
+    public BatchGetResult getProductsByIds(Collection<String> productIds) {
+        return repository.findByIds(new ArrayList<>(new LinkedHashSet<>(productIds)));
+    }
+
+    public Product createProduct(String title, String description, int price, int count) {
+        String productId = UUID.randomUUID().toString(); // Генерируем UUID
 
         TransactWriteItemsRequest transactWriteItemsRequest = TransactWriteItemsRequest.builder()
-                .transactItems(List.of(
-                        TransactWriteItem.builder().put(
-                                Put.builder().tableName(productsTable).item(productItem).build()
-                        ).build(),
-                        TransactWriteItem.builder().put(
-                                Put.builder().tableName(stocksTable).item(stockItem).build()
-                        ).build()
-                ))
+                .transactItems(putItems(new Product(productId, title, description, price, count)))
                 .build();
 
         try {
             dynamoDb.transactWriteItems(transactWriteItemsRequest);
-            return new Product(productId, title, description, price, count);
+            Product product = new Product(productId, title, description, price, count);
+            cache.put(product);
+            search.onProductWritten(product);
+            catalogWrites.incrementAndGet();
+            return product;
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Failed to create product transactionally: " + e.getMessage());
         }
     }
+
+    /**
+     * Creates many products, writing them in {@code TransactWriteItems} chunks of 50 products
+     * (two actions each, or 33 products when the product view is written too) that run
+     * concurrently. Each chunk succeeds or fails as a whole; the returned list holds one created product or one failure
+     * message per input, in input order. Ids of the inputs are ignored.
+     */
+    public List<BulkCreateResult> createProducts(List<Product> newProducts) {
+        List<Product> products = new ArrayList<>(newProducts.size());
+        for (Product product : newProducts) {
+            products.add(new Product(UUID.randomUUID().toString(),
+                    product.title(), product.description(), product.price(), product.count()));
+        }
+
+        List<CompletableFuture<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < products.size(); from += bulkChunkSize) {
+            List<Product> chunk = products.subList(from, Math.min(from + bulkChunkSize, products.size()));
+            chunks.add(CompletableFuture.supplyAsync(() -> writeChunk(chunk), bulkWriteExecutor));
+        }
+
+        List<BulkCreateResult> results = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            String failure = chunks.get(i / bulkChunkSize).join();
+            if (failure == null) {
+                cache.put(products.get(i));
+                search.onProductWritten(products.get(i));
+                results.add(new BulkCreateResult(i, HttpStatus.CREATED.value(), products.get(i), null));
+            } else {
+                results.add(new BulkCreateResult(i, HttpStatus.INTERNAL_SERVER_ERROR.value(), null, failure));
+            }
+        }
+        catalogWrites.incrementAndGet();
+        return results;
+    }
+
+    /**
+     * @return {@code null} when the chunk was written, otherwise the reason it was not
+     */
+    private String writeChunk(List<Product> chunk) {
+        List<TransactWriteItem> actions = new ArrayList<>(chunk.size() * 3);
+        for (Product product : chunk) {
+            actions.addAll(putItems(product));
+        }
+
+        try {
+            dynamoDb.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(actions).build());
+            return null;
+        } catch (Exception e) {
+            logger.error("Failed to write chunk of {} products: {}", chunk.size(), e.getMessage());
+            return "Failed to create product transactionally: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Sets the stock count of an existing product, together with the count of its product view item.
+     *
+     * @return {@code false} if there is no such product
+     */
+    public boolean updateStock(String productId, int count) {
+        Map<String, AttributeValue> productKey = Map.of("id", AttributeValue.builder().s(productId).build());
+        AttributeValue countValue = AttributeValue.builder().n(String.valueOf(count)).build();
+
+        List<TransactWriteItem> actions = new ArrayList<>(2);
+        actions.add(TransactWriteItem.builder().put(Put.builder()
+                .tableName(stocksTable)
+                .item(Map.of("product_id", AttributeValue.builder().s(productId).build(), "count", countValue))
+                .build()).build());
+        actions.add(TransactWriteItem.builder().conditionCheck(ConditionCheck.builder()
+                .tableName(productsTable)
+                .key(productKey)
+                .conditionExpression("attribute_exists(id)")
+                .build()).build());
+        // a view item without the product attributes is created for products the view
+        // backfill has not reached yet; the backfill fills them in and keeps the count
+        if (viewTable != null) {
+            actions.add(TransactWriteItem.builder().update(Update.builder()
+                    .tableName(viewTable)
+                    .key(productKey)
+                    .updateExpression("SET #count = :count")
+                    .expressionAttributeNames(Map.of("#count", "count"))
+                    .expressionAttributeValues(Map.of(":count", countValue))
+                    .build()).build());
+        }
+
+        try {
+            dynamoDb.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(actions).build());
+        } catch (TransactionCanceledException e) {
+            if (e.hasCancellationReasons() && "ConditionalCheckFailed".equals(e.cancellationReasons().get(1).code())) {
+                return false;
+            }
+            throw new RuntimeException("Failed to update stock of product " + productId + ": " + e.getMessage(), e);
+        } finally {
+            cache.invalidate(productId);
+            // the write may have been applied even when it failed
+            catalogWrites.incrementAndGet();
+        }
+        search.onStockWritten(productId, count);
+        return true;
+    }
+
+    /**
+     * Takes {@code quantity} items of a product's stock, never more than are in stock. Concurrent
+     * reservations of one product are written together, see {@link StockReservations}.
+     *
+     * @return {@code false} if there is no stock item for the product
+     * @throws InsufficientStockException if fewer than {@code quantity} items are in stock
+     */
+    public boolean reserveStock(String productId, int quantity) {
+        return reservations.reserve(productId, quantity);
+    }
+
+    /**
+     * Returns {@code quantity} items to a product's stock. With {@code STOCK_WRITE_BEHIND_ENABLED} the
+     * release is only buffered, see {@link StockWriteBehind}, and a product without stock is not noticed.
+     *
+     * @return {@code false} if there is no stock item for the product
+     */
+    public boolean releaseStock(String productId, int quantity) {
+        if (stockWriteBehind != null) {
+            stockWriteBehind.add(productId, quantity);
+            return true;
+        }
+        return reservations.release(productId, quantity);
+    }
+
+    /**
+     * Keeps the cache and the search index in line with a reserved or released count, like
+     * {@link #updateStock} does.
+     */
+    private void onStockChanged(String productId, Integer count) {
+        cache.invalidate(productId);
+        catalogWrites.incrementAndGet();
+        if (count != null) {
+            search.onStockWritten(productId, count);
+        }
+    }
+
+    public boolean isStockWriteBehindEnabled() {
+        return stockWriteBehind != null;
+    }
+
+    /**
+     * @return {@code null} unless {@code STOCK_WRITE_BEHIND_ENABLED} is set
+     */
+    public StockWriteBehind.Stats getStockWriteBehindStats() {
+        return stockWriteBehind == null ? null : stockWriteBehind.getStats();
+    }
+
+    private List<Metrics.Value> stockWriteBehindMetrics() {
+        StockWriteBehind.Stats stats = getStockWriteBehindStats();
+        return List.of(
+                Metrics.Value.counter("Flushes", stats.flushes()),
+                Metrics.Value.counter("FlushedProducts", stats.flushedProducts()),
+                Metrics.Value.counter("FailedWrites", stats.failedWrites()),
+                Metrics.Value.counter("DroppedProducts", stats.droppedProducts()),
+                Metrics.Value.gauge("PendingProducts", stats.pendingProducts(), "Count"),
+                Metrics.Value.gauge("PendingChanges", stats.pendingChanges(), "Count"),
+                Metrics.Value.gauge("LastFlushMillis", stats.lastFlushMillis(), "Milliseconds"),
+                Metrics.Value.gauge("MaxFlushMillis", stats.maxFlushMillis(), "Milliseconds"));
+    }
+
+    private List<TransactWriteItem> putItems(Product product) {
+        List<TransactWriteItem> actions = new ArrayList<>(3);
+        actions.add(TransactWriteItem.builder().put(
+                Put.builder().tableName(productsTable).item(productItem(product)).build()
+        ).build());
+        actions.add(TransactWriteItem.builder().put(
+                Put.builder().tableName(stocksTable).item(stockItem(product)).build()
+        ).build());
+        if (viewTable != null) {
+            actions.add(TransactWriteItem.builder().put(
+                    Put.builder().tableName(viewTable).item(viewItem(product)).build()
+            ).build());
+        }
+        return actions;
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        return Optional.ofNullable(System.getenv(name)).map(Integer::parseInt).orElse(defaultValue);
+    }
+
+    /**
+     * A fixed pool of daemon threads, or with {@code VIRTUAL_THREADS_ENABLED} a virtual thread per
+     * task. Virtual threads ignore {@code threads}; the DynamoDB clients' shared in-flight limit bounds
+     * the concurrency of the blocking calls instead.
+     */
+    private ExecutorService newExecutor(String name, int threads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 }
@@ -0,0 +1,400 @@
+package org.example.service;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+/**
+ * Reserves and releases stock with conditional updates of the {@code stocks} item, so that the
+ * count never goes below zero, and of the product view item in the same transaction when there
+ * is a view.
+ * <p>
+ * Changes to the same product are combined: the first caller for a product writes the changes of
+ * every caller that arrived before its write, as one update of their net quantity, while the
+ * others wait. When that write is in flight the next callers queue up, and once it is done the
+ * first of them writes the queue. A hot product thus costs one write per round trip instead of
+ * one per caller, and callers never contend with each other on the item. If the combined
+ * reservations do not fit, the returned count decides which of them, in arrival order, still do
+ * and the write is retried with those. Throttling, transaction conflicts and condition failures
+ * are retried with jittered exponential backoff.
+ */
+public class StockReservations {
+
+    static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_MILLIS = 5;
+    private static final long MAX_BACKOFF_MILLIS = 500;
+
+    private final DynamoDbClient dynamoDb;
+    private final String stocksTable;
+    private final String viewTable;
+    private final BiConsumer<String, Integer> onChange;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * @param viewTable the product view table, or {@code null} if there is none
+     * @param onChange  called with the product id and its new count after the count changed; the count
+     *                  is {@code null} if it could not be read back
+     */
+    public StockReservations(DynamoDbClient dynamoDb, String stocksTable, String viewTable,
+                             BiConsumer<String, Integer> onChange) {
+        this.dynamoDb = dynamoDb;
+        this.stocksTable = stocksTable;
+        this.viewTable = viewTable;
+        this.onChange = onChange;
+    }
+
+    /**
+     * Takes {@code quantity} items of the product's stock.
+     *
+     * @return {@code false} if the product has no stock item
+     * @throws InsufficientStockException if fewer than {@code quantity} items are in stock
+     */
+    public boolean reserve(String productId, int quantity) {
+        return change(productId, -quantity);
+    }
+
+    /**
+     * Returns {@code quantity} items to the product's stock.
+     *
+     * @return {@code false} if the product has no stock item
+     */
+    public boolean release(String productId, int quantity) {
+        return change(productId, quantity);
+    }
+
+    private boolean change(String productId, int delta) {
+        if (delta == 0) {
+            throw new IllegalArgumentException("quantity must be positive");
+        }
+        Change change = new Change(delta);
+        Lane lane;
+        boolean writer;
+        while (true) {
+            lane = lanes.computeIfAbsent(productId, id -> new Lane());
+            synchronized (lane) {
+                // a lane is removed under its lock once drained; queue on the next one then
+                if (lanes.get(productId) != lane) {
+                    continue;
+                }
+                lane.pending.add(change);
+                writer = !lane.writing;
+                lane.writing = true;
+                break;
+            }
+        }
+
+        if (!writer) {
+            // a failed result is rethrown below
+            CompletableFuture.anyOf(change.result, change.turn).exceptionally(e -> null).join();
+        }
+        if (!change.result.isDone()) {
+            writePending(productId, lane);
+        }
+        return join(change.result);
+    }
+
+    /**
+     * Writes the queued changes of a product, then hands the lane to the first change queued
+     * in the meantime, if any.
+     */
+    private void writePending(String productId, Lane lane) {
+        List<Change> batch;
+        synchronized (lane) {
+            batch = takeBatch(lane.pending);
+        }
+
+        try {
+            write(productId, batch);
+        } catch (RuntimeException e) {
+            for (Change change : batch) {
+                change.result.completeExceptionally(e);
+            }
+        } finally {
+            synchronized (lane) {
+                if (lane.pending.isEmpty()) {
+                    lane.writing = false;
+                    lanes.remove(productId, lane);
+                } else {
+                    lane.pending.get(0).turn.complete(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the longest prefix of {@code pending} whose releases and whose reservations each add up
+     * to at most {@link Integer#MAX_VALUE}, so that the net quantity of any part of it fits an
+     * {@code int}. The rest stays queued for the next write; a single change always fits.
+     */
+    private static List<Change> takeBatch(List<Change> pending) {
+        long released = 0;
+        long reserved = 0;
+        int size = 0;
+        for (Change change : pending) {
+            if (change.delta > 0) {
+                released += change.delta;
+            } else {
+                reserved -= change.delta;
+            }
+            if (size > 0 && (released > Integer.MAX_VALUE || reserved > Integer.MAX_VALUE)) {
+                break;
+            }
+            size++;
+        }
+        List<Change> batch = new ArrayList<>(pending.subList(0, size));
+        pending.subList(0, size).clear();
+        return batch;
+    }
+
+    private void write(String productId, List<Change> batch) {
+        List<Change> remaining = batch;
+        for (int attempt = 1; ; attempt++) {
+            long delta = 0;
+            for (Change change : remaining) {
+                delta += change.delta;
+            }
+
+            // within int range, see takeBatch
+            Attempt result = apply(productId, (int) delta);
+            switch (result.outcome) {
+                case APPLIED -> {
+                    onChange.accept(productId, result.count);
+                    remaining.forEach(change -> change.result.complete(true));
+                    return;
+                }
+                case MISSING -> {
+                    remaining.forEach(change -> change.result.complete(false));
+                    return;
+                }
+                case INSUFFICIENT -> remaining = fitting(remaining, result.count);
+                case RETRY -> {
+                }
+            }
+            if (remaining.isEmpty()) {
+                return;
+            }
+            if (attempt == MAX_ATTEMPTS) {
+                throw new RuntimeException("Failed to change stock of product " + productId
+                        + ": still contended after " + MAX_ATTEMPTS + " attempts");
+            }
+            pause(attempt);
+        }
+    }
+
+    /**
+     * Keeps every release, and the reservations that fit into {@code available} plus the released
+     * quantity in arrival order; the others fail.
+     */
+    private static List<Change> fitting(List<Change> changes, int available) {
+        long budget = available;
+        for (Change change : changes) {
+            if (change.delta > 0) {
+                budget += change.delta;
+            }
+        }
+
+        List<Change> fitting = new ArrayList<>(changes.size());
+        for (Change change : changes) {
+            if (change.delta > 0) {
+                fitting.add(change);
+            } else if (-change.delta <= budget) {
+                budget += change.delta;
+                fitting.add(change);
+            } else {
+                change.result.completeExceptionally(new InsufficientStockException(-change.delta, available));
+            }
+        }
+        return fitting;
+    }
+
+    /**
+     * One conditional update of the stock count by {@code delta}, together with the view count when
+     * there is a view. A product the view backfill has not reached yet either has no view item, and
+     * then only the stock item is updated and the backfill copies its count later, or has the item
+     * with only a count that {@link ProductService#updateStock} creates, which is updated like any
+     * other. An applied update
+     * comes with the new count: the update returns it, a transaction does not, so it is read back.
+     */
+    private Attempt apply(String productId, int delta) {
+        Update stockUpdate = countUpdate(stocksTable, Map.of("product_id", AttributeValue.builder().s(productId).build()), delta, true)
+                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                .build();
+        if (viewTable == null) {
+            return applyToStock(stockUpdate);
+        }
+
+        // the stock condition already guards the count, the view's only has to find one
+        Update viewUpdate = countUpdate(viewTable, Map.of("id", AttributeValue.builder().s(productId).build()), delta, false)
+                .build();
+        try {
+            dynamoDb.transactWriteItems(TransactWriteItemsRequest.builder()
+                    .transactItems(TransactWriteItem.builder().update(stockUpdate).build(),
+                            TransactWriteItem.builder().update(viewUpdate).build())
+                    .build());
+            return Attempt.applied(readCount(stockUpdate));
+        } catch (TransactionCanceledException e) {
+            List<CancellationReason> reasons = e.hasCancellationReasons() ? e.cancellationReasons() : List.of();
+            if (reasons.size() == 2 && "ConditionalCheckFailed".equals(reasons.get(0).code())) {
+                return rejected(reasons.get(0).item());
+            }
+            if (reasons.size() == 2 && "ConditionalCheckFailed".equals(reasons.get(1).code())) {
+                return applyToStock(stockUpdate);
+            }
+            if (reasons.stream().anyMatch(reason -> isRetryable(reason.code()))) {
+                return Attempt.RETRY;
+            }
+            throw e;
+        } catch (DynamoDbException e) {
+            if (e.isThrottlingException()) {
+                return Attempt.RETRY;
+            }
+            throw e;
+        }
+    }
+
+    private Attempt applyToStock(Update update) {
+        try {
+            UpdateItemResponse response = dynamoDb.updateItem(UpdateItemRequest.builder()
+                    .tableName(update.tableName())
+                    .key(update.key())
+                    .updateExpression(update.updateExpression())
+                    .conditionExpression(update.conditionExpression())
+                    .expressionAttributeNames(update.expressionAttributeNames())
+                    .expressionAttributeValues(update.expressionAttributeValues())
+                    .returnValuesOnConditionCheckFailure(update.returnValuesOnConditionCheckFailure())
+                    .returnValues(ReturnValue.UPDATED_NEW)
+                    .build());
+            return Attempt.applied(count(response.attributes()));
+        } catch (ConditionalCheckFailedException e) {
+            return rejected(e.item());
+        } catch (DynamoDbException e) {
+            if (e.isThrottlingException()) {
+                return Attempt.RETRY;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Adds {@code delta} to the count with an atomic {@code ADD}, on the condition that the item has a
+     * count, which {@code ADD} would otherwise create, and, with {@code keepNonNegative}, that it stays
+     * at zero or above.
+     */
+    private static Update.Builder countUpdate(String table, Map<String, AttributeValue> key, int delta,
+                                              boolean keepNonNegative) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":delta", AttributeValue.builder().n(String.valueOf(delta)).build());
+        String condition = "attribute_exists(#count)";
+        if (keepNonNegative && delta < 0) {
+            values.put(":required", AttributeValue.builder().n(String.valueOf(-delta)).build());
+            condition = "#count >= :required";
+        }
+        return Update.builder()
+                .tableName(table)
+                .key(key)
+                .updateExpression("ADD #count :delta")
+                .conditionExpression(condition)
+                .expressionAttributeNames(Map.of("#count", "count"))
+                .expressionAttributeValues(values);
+    }
+
+    /**
+     * The count of the item {@code update} wrote, read consistently, or {@code null} if it cannot be read;
+     * the write has succeeded either way.
+     */
+    private Integer readCount(Update update) {
+        try {
+            return count(dynamoDb.getItem(GetItemRequest.builder()
+                    .tableName(update.tableName())
+                    .key(update.key())
+                    .projectionExpression("#count")
+                    .expressionAttributeNames(Map.of("#count", "count"))
+                    .consistentRead(true)
+                    .build()).item());
+        } catch (DynamoDbException e) {
+            return null;
+        }
+    }
+
+    private static Integer count(Map<String, AttributeValue> stockItem) {
+        if (stockItem == null || !stockItem.containsKey("count")) {
+            return null;
+        }
+        return Integer.parseInt(stockItem.get("count").n());
+    }
+
+    private static Attempt rejected(Map<String, AttributeValue> stockItem) {
+        Integer count = count(stockItem);
+        return count == null ? Attempt.MISSING : new Attempt(Outcome.INSUFFICIENT, count);
+    }
+
+    private static boolean isRetryable(String code) {
+        return "TransactionConflict".equals(code) || "ThrottlingError".equals(code)
+                || "ProvisionedThroughputExceeded".equals(code) || "RequestLimitExceeded".equals(code);
+    }
+
+    /**
+     * Sleeps for a random time up to an exponentially growing bound ("full jitter"), so that
+     * instances retrying the same item spread out.
+     */
+    private static void pause(int attempt) {
+        long bound = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying a stock change", e);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private enum Outcome {APPLIED, MISSING, INSUFFICIENT, RETRY}
+
+    /**
+     * @param count the new count of an applied update ({@code null} if unknown), the available count
+     *              of an insufficient one
+     */
+    private record Attempt(Outcome outcome, Integer count) {
+        static final Attempt MISSING = new Attempt(Outcome.MISSING, null);
+        static final Attempt RETRY = new Attempt(Outcome.RETRY, null);
+
+        static Attempt applied(Integer count) {
+            return new Attempt(Outcome.APPLIED, count);
+        }
+    }
+
+    /**
+     * The changes of one product waiting for a write, and whether a caller is writing.
+     */
+    private static final class Lane {
+        final List<Change> pending = new ArrayList<>();
+        boolean writing;
+    }
+
+    private static final class Change {
+        final int delta;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        /** Completed when this change's caller is to write the queue. */
+        final CompletableFuture<Void> turn = new CompletableFuture<>();
+
+        Change(int delta) {
+            this.delta = delta;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.example.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/**
+ * Write-behind buffer for stock count changes: {@link #add} only adds the delta to a per-product
+ * {@link LongAdder}, and a flush writes each product's net delta with one update. Flushes run every
+ * {@code flushIntervalMillis}, as soon as {@code maxPendingProducts} products have pending changes,
+ * and on {@link #close()}; a JVM shutdown hook is expected to call the latter. Counts in DynamoDB thus
+ * lag behind by up to one interval, and changes still buffered when the process dies are lost.
+ * <p>
+ * A flush swaps in an empty buffer and waits for the few adds still working on the old one, so adds
+ * never block each other or the flush, and no change is counted twice or lost to a concurrent flush.
+ * Deltas whose write fails go back into the buffer for the next flush; deltas of products without
+ * a stock item are dropped. A net delta beyond {@code int} range is written in several updates.
+ */
+public class StockWriteBehind implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockWriteBehind.class);
+
+    private final BiPredicate<String, Integer> writer;
+    private final Executor writeExecutor;
+    private final int maxPendingProducts;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Object flushLock = new Object();
+    private volatile Buffer buffer = new Buffer();
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedProducts = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+    private final LongAdder droppedProducts = new LongAdder();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+    private final AtomicLong maxFlushMillis = new AtomicLong();
+    private final LongAdder totalFlushMillis = new LongAdder();
+
+    /**
+     * @param writer        writes a product's net delta, returning {@code false} if it has no stock item
+     * @param writeExecutor runs the writes of a flush concurrently
+     */
+    public StockWriteBehind(BiPredicate<String, Integer> writer, Executor writeExecutor,
+                            long flushIntervalMillis, int maxPendingProducts) {
+        this.writer = writer;
+        this.writeExecutor = writeExecutor;
+        this.maxPendingProducts = maxPendingProducts;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Buffers a change of a product's count by {@code delta}.
+     */
+    public void add(String productId, int delta) {
+        buffer(productId, delta);
+    }
+
+    private void buffer(String productId, long delta) {
+        Buffer current;
+        while (true) {
+            current = buffer;
+            current.writers.increment();
+            try {
+                // swapped out between the read and the increment: the flush may not wait for us
+                if (current != buffer) {
+                    continue;
+                }
+                current.deltas.computeIfAbsent(productId, id -> new LongAdder()).add(delta);
+                current.changes.increment();
+                break;
+            } finally {
+                current.writers.decrement();
+            }
+        }
+
+        if (current.deltas.size() >= maxPendingProducts && flushRequested.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // closed; close() flushes
+            }
+        }
+    }
+
+    /**
+     * Writes every buffered delta and waits for the writes.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            flushRequested.set(false);
+            Buffer flushed = buffer;
+            buffer = new Buffer();
+            while (flushed.writers.sum() != 0) {
+                Thread.onSpinWait();
+            }
+            if (flushed.deltas.isEmpty()) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            List<CompletableFuture<Void>> writes = new ArrayList<>(flushed.deltas.size());
+            for (Map.Entry<String, LongAdder> entry : flushed.deltas.entrySet()) {
+                long delta = entry.getValue().sum();
+                if (delta != 0) {
+                    writes.add(CompletableFuture.runAsync(() -> write(entry.getKey(), delta), writeExecutor));
+                }
+            }
+            CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            flushes.increment();
+            flushedProducts.add(writes.size());
+            lastFlushMillis.set(millis);
+            maxFlushMillis.accumulateAndGet(millis, Math::max);
+            totalFlushMillis.add(millis);
+        }
+    }
+
+    /**
+     * Stops the periodic flushes and writes what is still buffered.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    public Stats getStats() {
+        Buffer current = buffer;
+        return new Stats(current.deltas.size(), current.changes.sum(), flushes.sum(), flushedProducts.sum(),
+                failedWrites.sum(), droppedProducts.sum(), lastFlushMillis.get(), maxFlushMillis.get(),
+                totalFlushMillis.sum());
+    }
+
+    private void write(String productId, long delta) {
+        long remaining = delta;
+        try {
+            while (remaining != 0) {
+                int step = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, remaining));
+                if (!writer.test(productId, step)) {
+                    droppedProducts.increment();
+                    logger.warn("Dropped buffered stock change of {} for product {}: no stock item", remaining, productId);
+                    return;
+                }
+                remaining -= step;
+            }
+        } catch (RuntimeException e) {
+            failedWrites.increment();
+            logger.error("Failed to write buffered stock change of {} for product {}, retrying with the next flush: {}",
+                    remaining, productId, e.getMessage());
+            buffer(productId, remaining);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Stock flush failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Pending deltas by product id, and the number of {@link #add} calls working on them.
+     */
+    private static final class Buffer {
+        final Map<String, LongAdder> deltas = new ConcurrentHashMap<>();
+        final LongAdder changes = new LongAdder();
+        final LongAdder writers = new LongAdder();
+    }
+
+    /**
+     * @param pendingProducts products with buffered changes, the number of writes of the next flush
+     * @param pendingChanges  {@link #add} calls since the last flush
+     * @param droppedProducts buffered deltas dropped because the product had no stock item
+     */
+    public record Stats(int pendingProducts, long pendingChanges, long flushes, long flushedProducts,
+                        long failedWrites, long droppedProducts, long lastFlushMillis, long maxFlushMillis,
+                        long totalFlushMillis) {
+
+        public double averageFlushMillis() {
+            return flushes == 0 ? 0 : (double) totalFlushMillis / flushes;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.example;
+
+import com.amazonaws.serverless.proxy.internal.LambdaContainerHandler;
+import com.amazonaws.serverless.proxy.internal.testutils.AwsProxyRequestBuilder;
+import com.amazonaws.serverless.proxy.internal.testutils.MockLambdaContext;
+import com.amazonaws.serverless.proxy.model.AwsProxyResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Cold start measurement for one fresh JVM: handler initialization (optionally including
+ * {@link Priming} when started with {@code -Dpriming=true}) and the first request after it.
+ * {@code scripts/cold-start.sh} runs it repeatedly in the configurations worth comparing.
+ */
+public class ColdStartHarness {
+
+    public static void main(String[] args) throws IOException {
+        String path = args.length > 0 ? args[0] : "/products";
+        long jvmStartupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+        long initStart = System.nanoTime();
+        StreamLambdaHandler handler = new StreamLambdaHandler();
+        if (Boolean.getBoolean("priming")) {
+            Priming.prime(handler);
+        }
+        long initEnd = System.nanoTime();
+
+        ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+        handler.handleRequest(new AwsProxyRequestBuilder(path, "GET")
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .buildStream(), responseStream, new MockLambdaContext());
+        long firstResponse = System.nanoTime();
+
+        AwsProxyResponse response = LambdaContainerHandler.getObjectMapper()
+                .readValue(responseStream.toByteArray(), AwsProxyResponse.class);
+        System.out.printf("jvm=%d ms init=%.1f ms first_response=%.1f ms total=%.1f ms status=%d%n",
+                jvmStartupMillis,
+                (initEnd - initStart) / 1e6,
+                (firstResponse - initEnd) / 1e6,
+                jvmStartupMillis + (firstResponse - initStart) / 1e6,
+                response.getStatusCode());
+        System.exit(0);
+    }
+}
@@ -0,0 +1,67 @@
+package org.example;
+
+import com.amazonaws.serverless.proxy.internal.testutils.AwsProxyRequestBuilder;
+import com.amazonaws.serverless.proxy.internal.testutils.MockLambdaContext;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Compares {@link StreamLambdaHandler} and {@link RouterLambdaHandler}: initialization time and
+ * per-request latency for requests that do not reach DynamoDB, so only the handler overhead is
+ * measured. Run with the test classpath, e.g. the one written by {@code scripts/cold-start.sh}:
+ * {@code java -cp ... org.example.HandlerBenchmark [iterations]}.
+ */
+public class HandlerBenchmark {
+
+    private static final Context context = new MockLambdaContext();
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+
+        benchmark("router", RouterLambdaHandler::new, iterations);
+        benchmark("spring", StreamLambdaHandler::new, iterations);
+        System.exit(0);
+    }
+
+    private static void benchmark(String name, Supplier<RequestStreamHandler> factory, int iterations) throws IOException {
+        long initStart = System.nanoTime();
+        RequestStreamHandler handler = factory.get();
+        double initMillis = (System.nanoTime() - initStart) / 1e6;
+
+        // warm up the JIT before measuring
+        for (int i = 0; i < iterations; i++) {
+            invoke(handler, i);
+        }
+
+        long[] latencies = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            invoke(handler, i);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("%-7s init=%.1f ms mean=%.1f us p50=%.1f us p99=%.1f us%n",
+                name, initMillis,
+                Arrays.stream(latencies).average().orElse(0) / 1e3,
+                latencies[iterations / 2] / 1e3,
+                latencies[(int) (iterations * 0.99)] / 1e3);
+    }
+
+    private static void invoke(RequestStreamHandler handler, int i) throws IOException {
+        AwsProxyRequestBuilder request = i % 2 == 0
+                ? new AwsProxyRequestBuilder("/products", "OPTIONS")
+                : new AwsProxyRequestBuilder("/products", "POST")
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body("{\"title\":\"\",\"price\":-1,\"count\":-1}");
+        handler.handleRequest(request.buildStream(), new ByteArrayOutputStream(), context);
+    }
+}
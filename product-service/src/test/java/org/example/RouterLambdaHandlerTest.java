@@ -0,0 +1,33 @@
+package org.example;
+
+import com.amazonaws.serverless.proxy.model.AwsProxyResponse;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs every {@link StreamLambdaHandlerTest} case against {@link RouterLambdaHandler}.
+ */
+public class RouterLambdaHandlerTest extends StreamLambdaHandlerTest {
+
+    @BeforeAll
+    public static void setUpRouter() {
+        handler = new RouterLambdaHandler();
+    }
+
+    @Test
+    public void eventWithoutPath_Returns404() {
+        ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+
+        handle(new ByteArrayInputStream("{\"httpMethod\":\"GET\"}".getBytes(StandardCharsets.UTF_8)), responseStream);
+
+        AwsProxyResponse response = readResponse(responseStream);
+        assertNotNull(response);
+        assertEquals(404, response.getStatusCode());
+    }
+}
@@ -5,6 +5,7 @@ import com.amazonaws.serverless.proxy.internal.testutils.AwsProxyRequestBuilder;
 import com.amazonaws.serverless.proxy.internal.testutils.MockLambdaContext;
 import com.amazonaws.serverless.proxy.model.AwsProxyResponse;
 import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -20,7 +21,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 public class StreamLambdaHandlerTest {
 
-    private static StreamLambdaHandler handler;
+    protected static RequestStreamHandler handler;
     private static Context lambdaContext;
 
     @BeforeAll
@@ -63,6 +64,31 @@ public class StreamLambdaHandlerTest {
         assertTrue(response.getBody().contains("\"count\""));
     }
 
+    @Test
+    public void getProductById_MatchingETag_Returns304WithoutBody() {
+        InputStream requestStream = new AwsProxyRequestBuilder("/products/39c4f230-3cda-4998-ac74-a3bb992af8aa", "GET")
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .buildStream();
+        ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+        handle(requestStream, responseStream);
+        String etag = readResponse(responseStream).getMultiValueHeaders().getFirst(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        requestStream = new AwsProxyRequestBuilder("/products/39c4f230-3cda-4998-ac74-a3bb992af8aa", "GET")
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .buildStream();
+        responseStream = new ByteArrayOutputStream();
+        handle(requestStream, responseStream);
+
+        AwsProxyResponse response = readResponse(responseStream);
+        assertNotNull(response);
+        assertEquals(304, response.getStatusCode());
+        assertEquals(etag, response.getMultiValueHeaders().getFirst(HttpHeaders.ETAG));
+        assertNotNull(response.getMultiValueHeaders().getFirst(HttpHeaders.CACHE_CONTROL));
+        assertTrue(response.getBody() == null || response.getBody().isEmpty());
+    }
+
     @Test
     public void getProductById_ProductNotFound_Returns404() {
         InputStream requestStream = new AwsProxyRequestBuilder("/products/99", "GET")
@@ -129,6 +155,95 @@ public class StreamLambdaHandlerTest {
     }
 
 
+    @Test
+    public void createProducts_MixedData_ReportsEveryItem() {
+        String requestBody = """
+            [
+                {
+                    "title": "New Product",
+                    "description": "Awesome product",
+                    "price": 100,
+                    "count": 10
+                },
+                {
+                    "title": "",
+                    "description": "Bad product",
+                    "price": -10,
+                    "count": -5
+                }
+            ]
+        """;
+
+        InputStream requestStream = new AwsProxyRequestBuilder("/products/bulk", "POST")
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(requestBody)
+                .buildStream();
+        ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+
+        handle(requestStream, responseStream);
+
+        AwsProxyResponse response = readResponse(responseStream);
+        assertNotNull(response);
+        assertEquals(207, response.getStatusCode());
+        assertTrue(response.getBody().contains("\"index\":0,\"status\":201"));
+        assertTrue(response.getBody().contains("\"index\":1,\"status\":400"));
+    }
+
+    @Test
+    public void getProductsByIds_ReturnsFoundAndMissingIds() {
+        String requestBody = """
+            {
+                "ids": ["39c4f230-3cda-4998-ac74-a3bb992af8aa", "99", "39c4f230-3cda-4998-ac74-a3bb992af8aa"]
+            }
+        """;
+
+        InputStream requestStream = new AwsProxyRequestBuilder("/products/batch-get", "POST")
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(requestBody)
+                .buildStream();
+        ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+
+        handle(requestStream, responseStream);
+
+        AwsProxyResponse response = readResponse(responseStream);
+        assertNotNull(response);
+        assertEquals(200, response.getStatusCode());
+        assertTrue(response.getBody().contains("\"id\":\"39c4f230-3cda-4998-ac74-a3bb992af8aa\""));
+        assertTrue(response.getBody().contains("\"missingIds\":[\"99\"]"));
+    }
+
+    @Test
+    public void getProductsByIds_NoIds_Returns400() {
+        InputStream requestStream = new AwsProxyRequestBuilder("/products/batch-get", "POST")
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"ids\": []}")
+                .buildStream();
+        ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+
+        handle(requestStream, responseStream);
+
+        AwsProxyResponse response = readResponse(responseStream);
+        assertNotNull(response);
+        assertEquals(400, response.getStatusCode());
+    }
+
+    @Test
+    public void options_Preflight_ReturnsCorsHeaders() {
+        InputStream requestStream = new AwsProxyRequestBuilder("/products/batch-get", "OPTIONS")
+                .header(HttpHeaders.ORIGIN, "https://example.com")
+                .header(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, "POST")
+                .buildStream();
+        ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+
+        handle(requestStream, responseStream);
+
+        AwsProxyResponse response = readResponse(responseStream);
+        assertNotNull(response);
+        assertEquals(200, response.getStatusCode());
+        assertNotNull(response.getMultiValueHeaders().getFirst(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN));
+        assertTrue(response.getMultiValueHeaders().getFirst(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS).contains("POST"));
+    }
+
     @Test
     public void invalidResource_Returns404() {
         InputStream requestStream = new AwsProxyRequestBuilder("/invalid", "GET")
@@ -143,7 +258,7 @@ public class StreamLambdaHandlerTest {
         assertEquals(404, response.getStatusCode());
     }
 
-    private void handle(InputStream is, ByteArrayOutputStream os) {
+    protected void handle(InputStream is, ByteArrayOutputStream os) {
         try {
             handler.handleRequest(is, os, lambdaContext);
         } catch (IOException e) {
@@ -152,7 +267,7 @@ public class StreamLambdaHandlerTest {
         }
     }
 
-    private AwsProxyResponse readResponse(ByteArrayOutputStream responseStream) {
+    protected AwsProxyResponse readResponse(ByteArrayOutputStream responseStream) {
         try {
             return LambdaContainerHandler.getObjectMapper().readValue(responseStream.toByteArray(), AwsProxyResponse.class);
         } catch (IOException e) {
@@ -0,0 +1,88 @@
+package org.example;
+
+import org.example.service.ProductService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop load on {@link ProductService#getProductById(String)}: {@code clients} callers each
+ * look up random ids (never cached, so every call reaches DynamoDB) for a fixed time. With
+ * {@code platform} the callers share a fixed pool of 200 threads, the servlet container default;
+ * with {@code virtual} each caller gets a virtual thread, and only the client's in-flight limit
+ * ({@code DYNAMODB_MAX_IN_FLIGHT}) bounds the DynamoDB calls. Prints throughput and p50/p99.
+ * Run each mode in a fresh JVM with {@code VIRTUAL_THREADS_ENABLED} to match, e.g. with
+ * {@code scripts/virtual-thread-load-test.sh}:
+ * {@code java -cp ... org.example.VirtualThreadLoadTest virtual [clients] [seconds]}.
+ */
+public class VirtualThreadLoadTest {
+
+    private static final int PLATFORM_THREADS = 200;
+
+    public static void main(String[] args) throws Exception {
+        boolean virtual = "virtual".equals(args.length > 0 ? args[0] : "platform");
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        ProductService productService = new ProductService();
+        // warm up the client, the connection pool and the JIT before measuring
+        run(productService, virtual, Math.min(clients, PLATFORM_THREADS), 5);
+
+        List<long[]> results = run(productService, virtual, clients, seconds);
+        long count = results.stream().mapToLong(latencies -> latencies.length).sum();
+        long[] latencies = new long[(int) count];
+        int offset = 0;
+        for (long[] clientLatencies : results) {
+            System.arraycopy(clientLatencies, 0, latencies, offset, clientLatencies.length);
+            offset += clientLatencies.length;
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("%-8s clients=%d ops/s=%.0f p50=%.2f ms p99=%.2f ms%n",
+                virtual ? "virtual" : "platform", clients, (double) count / seconds,
+                percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6);
+        System.exit(0);
+    }
+
+    private static List<long[]> run(ProductService productService, boolean virtual, int clients, int seconds)
+            throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<long[]>> futures = new ArrayList<>(clients);
+        try (ExecutorService callers = virtual
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS)) {
+            for (int i = 0; i < clients; i++) {
+                futures.add(callers.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    // clients queued behind a full platform pool start late and record fewer calls
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        productService.getProductById(UUID.randomUUID().toString());
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        }
+
+        List<long[]> results = new ArrayList<>(clients);
+        for (Future<long[]> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    private static long percentile(long[] sortedLatencies, double percentile) {
+        return sortedLatencies.length == 0 ? 0 : sortedLatencies[(int) (sortedLatencies.length * percentile)];
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.controller;
+
+import org.example.model.Product;
+import org.example.service.ProductFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ETagsTest {
+
+    private static final Product LAPTOP = new Product("1", "Laptop", "Fast", 1200, 3);
+    private static final Product PHONE = new Product("2", "Phone", null, 800, 0);
+
+    @Test
+    public void of_ChangesWithEveryField() {
+        String etag = ETags.of(LAPTOP);
+
+        assertEquals(etag, ETags.of(new Product("1", "Laptop", "Fast", 1200, 3)));
+        assertTrue(etag.matches("\"[0-9a-f]{16}\""), etag);
+        assertNotEquals(etag, ETags.of(new Product("1", "Laptop", "Fast", 1200, 2)));
+        assertNotEquals(etag, ETags.of(new Product("1", "Laptop", "Fast", 1201, 3)));
+        assertNotEquals(etag, ETags.of(new Product("1", "Laptop", "Fast!", 1200, 3)));
+        assertNotEquals(etag, ETags.of(new Product("1", "LaptopF", "ast", 1200, 3)));
+        assertNotEquals(etag, ETags.of(new Product("1", "Laptop", null, 1200, 3)));
+    }
+
+    @Test
+    public void ofCatalog_DependsOnVersionAndFilter() {
+        ProductFilter cheap = new ProductFilter(null, 100, null, null);
+        String etag = ETags.ofCatalog("v1", cheap);
+
+        assertTrue(etag.matches("\"[0-9a-f]{16}\""), etag);
+        assertEquals(etag, ETags.ofCatalog("v1", new ProductFilter(null, 100, null, null)));
+        assertNotEquals(etag, ETags.ofCatalog("v2", cheap));
+        assertNotEquals(etag, ETags.ofCatalog("v1", new ProductFilter(100, null, null, null)));
+        assertNotEquals(etag, ETags.ofCatalog("v1", new ProductFilter(null, 100, null, ProductFilter.Sort.TITLE)));
+        assertNotEquals(etag, ETags.ofCatalog("v1", null));
+    }
+
+    @Test
+    public void ofPage_DependsOnOrderAndCursor() {
+        String etag = ETags.ofPage(List.of(LAPTOP, PHONE), "next");
+
+        assertNotEquals(etag, ETags.ofPage(List.of(PHONE, LAPTOP), "next"));
+        assertNotEquals(etag, ETags.ofPage(List.of(LAPTOP, PHONE), null));
+    }
+
+    @Test
+    public void matches_UsesWeakComparison() {
+        String etag = ETags.of(LAPTOP);
+
+        assertTrue(ETags.matches(etag, etag));
+        assertTrue(ETags.matches("W/" + etag, etag));
+        assertTrue(ETags.matches("\"other\", " + etag, etag));
+        assertTrue(ETags.matches("*", etag));
+        assertFalse(ETags.matches(null, etag));
+        assertFalse(ETags.matches("\"other\"", etag));
+    }
+}
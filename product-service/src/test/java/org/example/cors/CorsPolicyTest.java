@@ -0,0 +1,31 @@
+package org.example.cors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CorsPolicyTest {
+
+    @Test
+    public void headers_AreBuiltOnceAndReadOnly() {
+        CorsPolicy policy = new CorsPolicy("https://example.com", "GET, POST, OPTIONS", "Content-Type", false, "X-Next-Cursor", null);
+
+        assertSame(policy.headers(), policy.headers());
+        assertEquals("https://example.com", policy.headers().getFirst(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN));
+        assertEquals("X-Next-Cursor", policy.headers().getFirst(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS));
+        assertFalse(policy.headers().containsKey(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS));
+        assertThrows(UnsupportedOperationException.class,
+                () -> policy.headers().add(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*"));
+    }
+
+    @Test
+    public void preflightHeaders_AddMaxAge() {
+        CorsPolicy policy = new CorsPolicy("*", "GET, OPTIONS", "Content-Type", true, "", 600);
+
+        assertEquals("600", policy.preflightHeaders().getFirst(HttpHeaders.ACCESS_CONTROL_MAX_AGE));
+        assertEquals("true", policy.preflightHeaders().getFirst(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS));
+        assertFalse(policy.headers().containsKey(HttpHeaders.ACCESS_CONTROL_MAX_AGE));
+        assertFalse(policy.headers().containsKey(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS));
+    }
+}
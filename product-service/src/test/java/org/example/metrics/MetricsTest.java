@@ -0,0 +1,205 @@
+package org.example.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final long NEVER = TimeUnit.HOURS.toSeconds(1);
+
+    private final List<String> lines = new ArrayList<>();
+
+    @Test
+    public void recordRequest_FirstRequest_IsWrittenAsColdStartOnFlush() throws Exception {
+        Metrics metrics = new Metrics(true, "Test", NEVER, 0, lines::add);
+
+        metrics.recordRequest("GET /products/{productId}", 200, TimeUnit.MILLISECONDS.toNanos(900), 0, 120);
+        metrics.recordRequest("GET /products/{productId}", 200, TimeUnit.MILLISECONDS.toNanos(5), 0, 120);
+        assertTrue(lines.isEmpty(), "written by a request: " + lines);
+        metrics.flush();
+
+        assertEquals(2, lines.size());
+        JsonNode cold = objectMapper.readTree(lines.get(0));
+        assertEquals("Test", cold.at("/_aws/CloudWatchMetrics/0/Namespace").asText());
+        assertEquals("GET /products/{productId}", cold.get("Route").asText());
+        assertEquals("true", cold.get("ColdStart").asText());
+        assertEquals(1, cold.at("/Latency/Count").asLong());
+        assertEquals(900.0, cold.at("/Latency/Max").asDouble(), 0.001);
+        JsonNode warm = objectMapper.readTree(lines.get(1));
+        assertEquals("false", warm.get("ColdStart").asText());
+        assertEquals(1, warm.at("/Latency/Count").asLong());
+        assertEquals(5.0, warm.at("/Latency/Max").asDouble(), 0.001);
+    }
+
+    @Test
+    public void flush_WarmRequests_AggregatedPerRoute() throws Exception {
+        Metrics metrics = new Metrics(true, "Test", NEVER, 0, lines::add);
+        metrics.recordRequest("GET /products", 200, TimeUnit.MILLISECONDS.toNanos(50), 0, 10);
+        metrics.flush();
+        lines.clear();
+
+        for (int i = 1; i <= 100; i++) {
+            metrics.recordRequest("GET /products/{productId}", i % 10 == 0 ? 404 : 200,
+                    TimeUnit.MILLISECONDS.toNanos(i), 0, 100);
+        }
+        metrics.recordRequest("POST /products", 500, TimeUnit.MILLISECONDS.toNanos(20), 300, 80);
+        metrics.flush();
+
+        assertEquals(2, lines.size());
+        JsonNode byId = routeLine("GET /products/{productId}");
+        assertEquals("false", byId.get("ColdStart").asText());
+        assertEquals(100, byId.at("/Latency/Count").asLong());
+        assertEquals(5050.0, byId.at("/Latency/Sum").asDouble(), 0.001);
+        assertEquals(1.0, byId.at("/Latency/Min").asDouble(), 0.001);
+        assertEquals(100.0, byId.at("/Latency/Max").asDouble(), 0.001);
+        long counted = 0;
+        for (JsonNode count : byId.at("/Latency/Counts")) {
+            counted += count.asLong();
+        }
+        assertEquals(100, counted);
+        assertEquals(10, byId.get("ClientErrors").asLong());
+        assertEquals(0, byId.get("ServerErrors").asLong());
+        JsonNode create = routeLine("POST /products");
+        assertEquals(1, create.get("ServerErrors").asLong());
+        assertEquals(300.0, create.at("/RequestBytes/Sum").asDouble(), 0.001);
+
+        lines.clear();
+        metrics.flush();
+        assertTrue(lines.isEmpty(), "flushed twice: " + lines);
+    }
+
+    @Test
+    public void flushIfDue_FlushesFirstInvocationThenOncePerInterval() {
+        long[] now = {1_000};
+        Metrics metrics = new Metrics(true, "Test", 60, 0, lines::add, () -> now[0]);
+
+        metrics.recordRequest("GET /products", 200, TimeUnit.MILLISECONDS.toNanos(900), 0, 10);
+        metrics.flushIfDue();
+        assertEquals(1, lines.size(), "the cold start is written at once");
+
+        for (int i = 0; i < 10; i++) {
+            now[0] += 5_000;
+            metrics.recordRequest("GET /products", 200, TimeUnit.MILLISECONDS.toNanos(5), 0, 10);
+            metrics.flushIfDue();
+        }
+        assertEquals(1, lines.size(), "written before the interval passed: " + lines);
+
+        now[0] += 10_000;
+        metrics.flushIfDue();
+        assertEquals(2, lines.size());
+
+        Metrics.withoutRecording(() -> {
+            now[0] += 60_000;
+            metrics.recordRequest("GET /products", 200, 1, 0, 0);
+            metrics.flushIfDue();
+        });
+        assertEquals(2, lines.size());
+    }
+
+    @Test
+    public void onCall_DynamoDbCalls_AggregatedPerOperation() throws Exception {
+        Metrics metrics = new Metrics(true, "Test", NEVER, 0, lines::add);
+
+        metrics.onCall("GetItem", TimeUnit.MILLISECONDS.toNanos(4), 0.5, false);
+        metrics.onCall("GetItem", TimeUnit.MILLISECONDS.toNanos(6), 1.0, false);
+        metrics.onCall("GetItem", TimeUnit.MILLISECONDS.toNanos(30), 0, true);
+        metrics.flush();
+
+        assertEquals(1, lines.size());
+        JsonNode line = objectMapper.readTree(lines.get(0));
+        assertEquals("GetItem", line.get("Operation").asText());
+        assertEquals(3, line.at("/DynamoDbLatency/Count").asLong());
+        assertEquals(1.5, line.at("/ConsumedCapacity/Sum").asDouble(), 0.001);
+        assertEquals(1, line.get("DynamoDbErrors").asLong());
+    }
+
+    @Test
+    public void register_Component_WritesCounterIncreasesAndGauges() throws Exception {
+        Metrics metrics = new Metrics(true, "Test", NEVER, 0, lines::add);
+        long[] hits = {5};
+        int[] size = {3};
+        metrics.register("Cache", () -> List.of(
+                Metrics.Value.counter("CacheHits", hits[0]),
+                Metrics.Value.gauge("CacheSize", size[0], "Count")));
+
+        metrics.flush();
+        hits[0] = 12;
+        metrics.flush();
+        metrics.flush();
+
+        assertEquals(2, lines.size());
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals("Cache", first.get("Component").asText());
+        assertEquals(5.0, first.get("CacheHits").asDouble(), 0.001);
+        assertEquals(3.0, first.get("CacheSize").asDouble(), 0.001);
+        JsonNode second = objectMapper.readTree(lines.get(1));
+        assertEquals(7.0, second.get("CacheHits").asDouble(), 0.001);
+        assertEquals(3.0, second.get("CacheSize").asDouble(), 0.001);
+    }
+
+    @Test
+    public void recordRequest_SampleRateOne_LogsEveryRequest() throws Exception {
+        Metrics metrics = new Metrics(true, "Test", NEVER, 1, lines::add);
+
+        metrics.recordRequest("GET /products", 200, TimeUnit.MILLISECONDS.toNanos(3), 0, 42);
+
+        // the request's own line; the aggregates wait for the flush
+        assertEquals(1, lines.size());
+        JsonNode line = objectMapper.readTree(lines.get(0));
+        assertNull(line.get("_aws"));
+        assertEquals("GET /products", line.get("route").asText());
+        assertEquals(42, line.get("responseBytes").asLong());
+        assertTrue(line.get("coldStart").asBoolean());
+    }
+
+    @Test
+    public void withoutRecording_AndDisabled_RecordNothing() {
+        Metrics metrics = new Metrics(true, "Test", 0, 1, lines::add);
+        Metrics.withoutRecording(() -> {
+            metrics.recordRequest("GET /products", 200, 1, 0, 0);
+            metrics.onCall("Scan", 1, 1, false);
+        });
+        metrics.flush();
+        assertTrue(lines.isEmpty());
+
+        Metrics disabled = new Metrics(false, "Test", 0, 1, lines::add);
+        disabled.recordRequest("GET /products", 200, 1, 0, 0);
+        disabled.flush();
+        assertTrue(lines.isEmpty());
+        assertNull(disabled.dynamoDbCallListener());
+    }
+
+    @Test
+    public void histogram_ManyBuckets_KeepsAtMostMaxValues() {
+        Histogram histogram = new Histogram(0.1, 200);
+        for (int i = 0; i < 200; i++) {
+            histogram.record(0.1 * Math.pow(Histogram.RATIO, i + 0.5));
+        }
+
+        Histogram.Snapshot snapshot = histogram.drain();
+
+        assertTrue(snapshot.values().size() <= Histogram.MAX_VALUES, "values: " + snapshot.values().size());
+        assertEquals(200, snapshot.counts().stream().mapToLong(Long::longValue).sum());
+        assertEquals(200, snapshot.count());
+        assertNull(histogram.drain());
+    }
+
+    private JsonNode routeLine(String route) throws Exception {
+        for (String line : lines) {
+            JsonNode node = objectMapper.readTree(line);
+            if (route.equals(node.path("Route").asText())) {
+                return node;
+            }
+        }
+        fail("no line for " + route + ": " + lines);
+        return null;
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CursorCodecTest {
+
+    @Test
+    public void encode_Decode_RoundTripsKey() {
+        Map<String, AttributeValue> key = Map.of(
+                "id", AttributeValue.builder().s("39c4f230-3cda-4998-ac74-a3bb992af8aa").build(),
+                "price", AttributeValue.builder().n("1200").build()
+        );
+
+        String cursor = CursorCodec.encode(key);
+
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+        assertEquals(key, CursorCodec.decode(cursor));
+    }
+
+    @Test
+    public void encode_EmptyKey_ReturnsNull() {
+        assertNull(CursorCodec.encode(Map.of()));
+        assertNull(CursorCodec.decode(null));
+    }
+
+    @Test
+    public void decode_Garbage_ThrowsInvalidCursor() {
+        assertThrows(InvalidCursorException.class, () -> CursorCodec.decode("not a cursor"));
+        assertThrows(InvalidCursorException.class, () -> CursorCodec.decode("AQ"));
+    }
+}
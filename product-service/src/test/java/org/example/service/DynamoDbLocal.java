@@ -0,0 +1,57 @@
+package org.example.service;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.net.URI;
+
+/**
+ * Clients for the tests that run against DynamoDB Local, e.g.
+ * {@code docker run -p 8000:8000 amazon/dynamodb-local} and
+ * {@code DYNAMODB_LOCAL_ENDPOINT=http://localhost:8000 mvn test}. Such tests are annotated with
+ * {@code @EnabledIfEnvironmentVariable(named = "DYNAMODB_LOCAL_ENDPOINT", matches = ".+")}.
+ */
+final class DynamoDbLocal {
+
+    private static final StaticCredentialsProvider CREDENTIALS =
+            StaticCredentialsProvider.create(AwsBasicCredentials.create("local", "local"));
+
+    private DynamoDbLocal() {
+    }
+
+    static DynamoDbClient client() {
+        return DynamoDbClient.builder()
+                .endpointOverride(endpoint())
+                .region(Region.US_EAST_1)
+                .credentialsProvider(CREDENTIALS)
+                .build();
+    }
+
+    static DynamoDbAsyncClient asyncClient() {
+        return DynamoDbAsyncClient.builder()
+                .endpointOverride(endpoint())
+                .region(Region.US_EAST_1)
+                .credentialsProvider(CREDENTIALS)
+                .build();
+    }
+
+    /**
+     * Creates an on-demand table with a string partition key named {@code key}.
+     */
+    static void createTable(DynamoDbClient dynamoDb, String table, String key) {
+        dynamoDb.createTable(CreateTableRequest.builder()
+                .tableName(table)
+                .keySchema(KeySchemaElement.builder().attributeName(key).keyType(KeyType.HASH).build())
+                .attributeDefinitions(AttributeDefinition.builder().attributeName(key).attributeType(ScalarAttributeType.S).build())
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .build());
+    }
+
+    private static URI endpoint() {
+        return URI.create(System.getenv("DYNAMODB_LOCAL_ENDPOINT"));
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against DynamoDB Local, see {@link DynamoDbLocal}.
+ */
+@EnabledIfEnvironmentVariable(named = "DYNAMODB_LOCAL_ENDPOINT", matches = ".+")
+public class ParallelScannerTest {
+
+    private static final String TABLE = "scan-test-" + UUID.randomUUID();
+    private static final int ITEM_COUNT = 100_000;
+
+    private static DynamoDbClient dynamoDb;
+    private static ExecutorService executor;
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        dynamoDb = DynamoDbLocal.client();
+        executor = Executors.newFixedThreadPool(8);
+
+        DynamoDbLocal.createTable(dynamoDb, TABLE, "id");
+
+        List<Future<?>> writes = new ArrayList<>();
+        for (int start = 0; start < ITEM_COUNT; start += 25) {
+            int from = start;
+            writes.add(executor.submit(() -> writeBatch(from, Math.min(from + 25, ITEM_COUNT))));
+        }
+        for (Future<?> write : writes) {
+            write.get();
+        }
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (dynamoDb != null) {
+            dynamoDb.deleteTable(DeleteTableRequest.builder().tableName(TABLE).build());
+            dynamoDb.close();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void scanAll_SingleSegment_FollowsEveryPage() {
+        assertAllItemsReturned(new ParallelScanner(dynamoDb, executor, 1).scanAll(TABLE));
+    }
+
+    @Test
+    public void scanAll_ParallelSegments_MergesEverySegment() {
+        assertAllItemsReturned(new ParallelScanner(dynamoDb, executor, 8).scanAll(TABLE));
+    }
+
+    private static void assertAllItemsReturned(List<Map<String, AttributeValue>> items) {
+        assertEquals(ITEM_COUNT, items.size());
+        Set<String> ids = new HashSet<>();
+        items.forEach(item -> ids.add(item.get("id").s()));
+        assertEquals(ITEM_COUNT, ids.size());
+    }
+
+    private static void writeBatch(int from, int to) {
+        List<WriteRequest> requests = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            requests.add(WriteRequest.builder().putRequest(PutRequest.builder().item(Map.of(
+                    "id", AttributeValue.builder().s("product-" + i).build(),
+                    // pad the items so the table spans many 1 MB scan pages
+                    "description", AttributeValue.builder().s("x".repeat(200)).build()
+            )).build()).build());
+        }
+
+        Map<String, List<WriteRequest>> pending = Map.of(TABLE, requests);
+        while (!pending.isEmpty()) {
+            pending = dynamoDb.batchWriteItem(BatchWriteItemRequest.builder().requestItems(pending).build())
+                    .unprocessedItems();
+        }
+    }
+}
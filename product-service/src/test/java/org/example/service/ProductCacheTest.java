@@ -0,0 +1,63 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductCacheTest {
+
+    @Test
+    public void get_SecondLookup_IsServedFromCache() {
+        ProductCache cache = new ProductCache(1, TimeUnit.MINUTES, 10);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("1", id -> { loads.incrementAndGet(); return Optional.of(product(id)); });
+        Optional<Product> product = cache.get("1", id -> { loads.incrementAndGet(); return Optional.of(product(id)); });
+
+        assertEquals("1", product.orElseThrow().id());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getStats().hits());
+        assertEquals(1, cache.getStats().misses());
+    }
+
+    @Test
+    public void put_OverCapacity_EvictsLeastRecentlyUsed() {
+        ProductCache cache = new ProductCache(1, TimeUnit.MINUTES, 2);
+        cache.put(product("1"));
+        cache.put(product("2"));
+        cache.get("1", id -> Optional.empty());
+        cache.put(product("3"));
+
+        assertTrue(cache.get("1", id -> Optional.empty()).isPresent());
+        assertTrue(cache.get("2", id -> Optional.empty()).isEmpty());
+        assertEquals(1, cache.getStats().evictions());
+        assertEquals(2, cache.getStats().size());
+    }
+
+    @Test
+    public void get_ExpiredEntry_IsReloaded() {
+        ProductCache cache = new ProductCache(0, TimeUnit.SECONDS, 10);
+        cache.put(product("1"));
+
+        assertTrue(cache.get("1", id -> Optional.empty()).isEmpty());
+        assertEquals(1, cache.getStats().misses());
+    }
+
+    @Test
+    public void get_AbsentProduct_IsNotCached() {
+        ProductCache cache = new ProductCache(1, TimeUnit.MINUTES, 10);
+
+        cache.get("1", id -> Optional.empty());
+
+        assertEquals(0, cache.getStats().size());
+    }
+
+    private static Product product(String id) {
+        return new Product(id, "Laptop", "High performance laptop", 1200, 5);
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductFilterTest {
+
+    private static final Product LAPTOP = new Product("1", "Laptop", "High performance laptop", 1200, 3);
+
+    @Test
+    public void matches_InclusivePriceBoundsAndCaseInsensitivePrefix() {
+        assertTrue(new ProductFilter(1200, 1200, "lAP", null).matches(LAPTOP));
+        assertTrue(new ProductFilter(null, null, "", null).matches(LAPTOP));
+        assertFalse(new ProductFilter(1201, null, null, null).matches(LAPTOP));
+        assertFalse(new ProductFilter(null, 1199, null, null).matches(LAPTOP));
+        assertFalse(new ProductFilter(null, null, "top", null).matches(LAPTOP));
+    }
+
+    @Test
+    public void sortParse_IgnoresCase() {
+        assertEquals(ProductFilter.Sort.PRICE, ProductFilter.Sort.parse(" Price"));
+        assertEquals(ProductFilter.Sort.TITLE, ProductFilter.Sort.parse("title"));
+        assertThrows(IllegalArgumentException.class, () -> ProductFilter.Sort.parse("count"));
+    }
+
+    @Test
+    public void productItem_CarriesIndexKeys() {
+        Map<String, AttributeValue> item = ProductItems.productItem(LAPTOP);
+
+        assertEquals("12", item.get("price_bucket").n());
+        assertEquals("l", item.get("title_key").s());
+        assertEquals("laptop", item.get("title_lc").s());
+        assertEquals(-1, ProductItems.priceBucket(-1));
+        assertEquals("😀", ProductItems.titleKey("😀 emoji"));
+
+        Map<String, AttributeValue> untitled = ProductItems.productItem(new Product("2", "", "", 5, 0));
+        assertFalse(untitled.containsKey("title_key"));
+        assertFalse(untitled.containsKey("title_lc"));
+    }
+}
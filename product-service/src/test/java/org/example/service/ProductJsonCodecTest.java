@@ -0,0 +1,132 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link ProductJsonCodec} against the Jackson path (items to {@link Product}s to Spring's
+ * {@code ObjectMapper}) on randomly generated catalogs. Failures print the seed to reproduce them.
+ */
+public class ProductJsonCodecTest {
+
+    private static final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private static final int RUNS = 500;
+
+    // characters that take every branch of the encoder: escapes, 1 to 3 UTF-8 bytes,
+    // surrogate pairs and lone surrogates
+    private static final int[] INTERESTING = {
+            0x00, 0x08, 0x09, 0x0A, 0x0C, 0x0D, 0x1F, '"', '\\', '/', 0x7F, 0x80, 0xE9, 0x7FF, 0x800,
+            0x2028, 0xFFFD, 0xFFFF, 0x10000, 0x1F600, 0x10FFFF, 0xD800, 0xDBFF, 0xDC00, 0xDFFF
+    };
+
+    @Test
+    public void writeProduct_RandomCatalogs_MatchJackson() throws Exception {
+        long baseSeed = System.nanoTime();
+        for (int run = 0; run < RUNS; run++) {
+            long seed = baseSeed + run;
+            Random random = new Random(seed);
+
+            List<Map<String, AttributeValue>> productItems = new ArrayList<>();
+            Map<String, Map<String, AttributeValue>> stockItems = new HashMap<>();
+            int size = random.nextInt(20);
+            for (int i = 0; i < size; i++) {
+                String id = randomString(random) + i;
+                productItems.add(Map.of(
+                        "id", AttributeValue.builder().s(id).build(),
+                        "title", AttributeValue.builder().s(randomString(random)).build(),
+                        "description", AttributeValue.builder().s(randomString(random)).build(),
+                        "price", AttributeValue.builder().n(String.valueOf(randomInt(random))).build()));
+                if (random.nextInt(4) != 0) {
+                    stockItems.put(id, Map.of(
+                            "product_id", AttributeValue.builder().s(id).build(),
+                            "count", AttributeValue.builder().n(String.valueOf(randomInt(random))).build()));
+                }
+            }
+
+            byte[] expected = objectMapper.writeValueAsBytes(
+                    ProductItems.toProducts(productItems, ProductItems.toStockCounts(stockItems)));
+
+            ProductJsonCodec codec = new ProductJsonCodec(random.nextInt(64));
+            codec.startArray();
+            for (Map<String, AttributeValue> productItem : productItems) {
+                codec.writeProduct(productItem, stockItems.get(productItem.get("id").s()));
+            }
+            codec.endArray();
+
+            assertArrayEquals(expected, codec.toByteArray(), () -> "seed " + seed);
+        }
+    }
+
+    @Test
+    public void flushTo_EmptiesBufferForReuse() throws Exception {
+        ProductJsonCodec codec = new ProductJsonCodec(16);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        codec.startArray();
+        codec.writeProduct(item("1", "7"), null);
+        codec.flushTo(out);
+        assertEquals(0, codec.size());
+        codec.writeProduct(item("2", "-3"), Map.of("count", AttributeValue.builder().n("5").build()));
+        codec.endArray();
+        codec.flushTo(out);
+
+        assertEquals(objectMapper.writeValueAsString(List.of(
+                new Product("1", "title", "description", 7, 0),
+                new Product("2", "title", "description", -3, 5))), out.toString());
+    }
+
+    @Test
+    public void parseInt_MatchesIntegerParseInt() {
+        for (String number : List.of("0", "-0", "+7", "42", "-42", "2147483647", "-2147483648", "0007")) {
+            assertEquals(Integer.parseInt(number), ProductJsonCodec.parseInt(number), number);
+        }
+        for (String number : List.of("", "-", "+", "2147483648", "-2147483649", "1.5", "1e3", "12a", " 1")) {
+            assertThrows(NumberFormatException.class, () -> Integer.parseInt(number), number);
+            assertThrows(NumberFormatException.class, () -> ProductJsonCodec.parseInt(number), number);
+        }
+    }
+
+    private static Map<String, AttributeValue> item(String id, String price) {
+        return Map.of(
+                "id", AttributeValue.builder().s(id).build(),
+                "title", AttributeValue.builder().s("title").build(),
+                "description", AttributeValue.builder().s("description").build(),
+                "price", AttributeValue.builder().n(price).build());
+    }
+
+    private static int randomInt(Random random) {
+        return switch (random.nextInt(4)) {
+            case 0 -> random.nextInt(1000);
+            case 1 -> -random.nextInt(1000);
+            case 2 -> random.nextBoolean() ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+            default -> random.nextInt();
+        };
+    }
+
+    private static String randomString(Random random) {
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(30);
+        for (int i = 0; i < length; i++) {
+            int codePoint = switch (random.nextInt(4)) {
+                case 0 -> INTERESTING[random.nextInt(INTERESTING.length)];
+                case 1 -> 0x20 + random.nextInt(0x5F);
+                case 2 -> random.nextInt(0xD800);
+                default -> 0xE000 + random.nextInt(0x10FFFF - 0xE000);
+            };
+            text.appendCodePoint(codePoint);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,271 @@
+package org.example.service;
+
+import org.example.model.BatchGetResult;
+import org.example.model.BulkCreateResult;
+import org.example.model.Product;
+import org.example.model.ProductPage;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writes products through {@link ProductService} with a product view and checks that
+ * {@link JoinProductRepository} and {@link MaterializedProductRepository} read the same products,
+ * and that index-backed filters return what {@link ProductFilter#matches} selects.
+ * Runs against DynamoDB Local, see {@link DynamoDbLocal}.
+ */
+@EnabledIfEnvironmentVariable(named = "DYNAMODB_LOCAL_ENDPOINT", matches = ".+")
+public class ProductRepositoryTest {
+
+    private static final String SUFFIX = "-" + UUID.randomUUID();
+    private static final String PRODUCTS = "products" + SUFFIX;
+    private static final String STOCKS = "stocks" + SUFFIX;
+    private static final String VIEW = "product_view" + SUFFIX;
+
+    private static DynamoDbClient dynamoDb;
+    private static DynamoDbAsyncClient dynamoDbAsync;
+    private static ExecutorService executor;
+    private static ProductService productService;
+    private static ProductRepository join;
+    private static ProductRepository view;
+    private static List<Product> created;
+
+    @BeforeAll
+    public static void setUp() {
+        dynamoDb = DynamoDbLocal.client();
+        dynamoDbAsync = DynamoDbLocal.asyncClient();
+        executor = Executors.newFixedThreadPool(4);
+
+        createTable(PRODUCTS, "id", true);
+        createTable(STOCKS, "product_id", false);
+        createTable(VIEW, "id", true);
+
+        productService = new ProductService(dynamoDb, dynamoDbAsync, PRODUCTS, STOCKS, VIEW);
+        ParallelScanner scanner = new ParallelScanner(dynamoDb, executor, 2);
+        join = new JoinProductRepository(dynamoDb, dynamoDbAsync, ProductService.ReadMode.SYNC,
+                PRODUCTS, STOCKS, scanner, executor);
+        view = new MaterializedProductRepository(dynamoDb, VIEW, scanner);
+
+        List<Product> newProducts = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            newProducts.add(new Product(null, "title " + i, "description " + i, i * 10, i % 7));
+        }
+        created = new ArrayList<>();
+        // more than one 33-product chunk of three actions per product
+        for (BulkCreateResult result : productService.createProducts(newProducts)) {
+            assertNotNull(result.product(), result.message());
+            created.add(result.product());
+        }
+        created.add(productService.createProduct("single", "created alone", 5, 1));
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (dynamoDb != null) {
+            for (String table : List.of(PRODUCTS, STOCKS, VIEW)) {
+                dynamoDb.deleteTable(DeleteTableRequest.builder().tableName(table).build());
+            }
+            dynamoDb.close();
+            dynamoDbAsync.close();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void findById_ViewMatchesJoin() {
+        for (Product product : created) {
+            assertEquals(Optional.of(product), join.findById(product.id()));
+            assertEquals(Optional.of(product), view.findById(product.id()));
+        }
+        assertEquals(Optional.empty(), view.findById("missing"));
+    }
+
+    @Test
+    public void findByIds_ViewMatchesJoin() {
+        List<String> ids = List.of(created.get(0).id(), "missing", created.get(1).id());
+
+        BatchGetResult fromJoin = join.findByIds(ids);
+        BatchGetResult fromView = view.findByIds(ids);
+
+        assertEquals(List.of(created.get(0), created.get(1)), fromView.products());
+        assertEquals(List.of("missing"), fromView.missingIds());
+        assertEquals(fromJoin, fromView);
+    }
+
+    @Test
+    public void forEachItemPage_ViewMatchesJoin() {
+        assertEquals(new HashSet<>(created), readAll(join));
+        assertEquals(new HashSet<>(created), readAll(view));
+    }
+
+    @Test
+    public void findPage_ViewFollowsCursors() {
+        Set<Product> products = new HashSet<>();
+        String cursor = null;
+        do {
+            ProductPage page = view.findPage(25, cursor);
+            products.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(new HashSet<>(created), products);
+    }
+
+    @Test
+    public void updateStock_UpdatesStockAndView() {
+        Product product = created.get(2);
+
+        assertTrue(productService.updateStock(product.id(), 42));
+
+        Product updated = new Product(product.id(), product.title(), product.description(), product.price(), 42);
+        assertEquals(Optional.of(updated), join.findById(product.id()));
+        assertEquals(Optional.of(updated), view.findById(product.id()));
+        assertEquals(Optional.of(updated), productService.getProductById(product.id()));
+        created.set(2, updated);
+    }
+
+    @Test
+    public void updateStock_MissingProduct_ReturnsFalse() {
+        assertFalse(productService.updateStock("missing", 1));
+        assertEquals(Optional.empty(), view.findById("missing"));
+    }
+
+    @Test
+    public void updateStock_NotBackfilled_ViewTreatsCountOnlyItemAsMissing() {
+        Product product = new Product(UUID.randomUUID().toString(), "not backfilled", "only in the tables", 10, 1);
+        dynamoDb.putItem(PutItemRequest.builder().tableName(PRODUCTS).item(ProductItems.productItem(product)).build());
+        dynamoDb.putItem(PutItemRequest.builder().tableName(STOCKS).item(ProductItems.stockItem(product)).build());
+        try {
+            assertTrue(productService.updateStock(product.id(), 4));
+
+            assertEquals(Optional.empty(), view.findById(product.id()));
+            assertEquals(List.of(product.id()), view.findByIds(List.of(product.id())).missingIds());
+            assertFalse(readAll(view).stream().anyMatch(read -> read.id().equals(product.id())));
+        } finally {
+            dynamoDb.deleteItem(DeleteItemRequest.builder().tableName(PRODUCTS).key(Map.of("id", AttributeValue.builder().s(product.id()).build())).build());
+            dynamoDb.deleteItem(DeleteItemRequest.builder().tableName(STOCKS).key(Map.of("product_id", AttributeValue.builder().s(product.id()).build())).build());
+            dynamoDb.deleteItem(DeleteItemRequest.builder().tableName(VIEW).key(Map.of("id", AttributeValue.builder().s(product.id()).build())).build());
+        }
+    }
+
+    @Test
+    public void getCatalogVersion_ChangesWithStockWrites() {
+        Product product = created.get(3);
+        String version = productService.getCatalogVersion();
+
+        assertTrue(productService.updateStock(product.id(), product.count()));
+
+        assertNotEquals(version, productService.getCatalogVersion());
+    }
+
+    @Test
+    public void getAllProducts_ReturnsCatalogInIdOrder() {
+        List<Product> expected = created.stream().sorted(Comparator.comparing(Product::id)).toList();
+
+        assertEquals(expected, productService.getAllProducts());
+    }
+
+    @Test
+    public void findProducts_PriceRange_ReturnsMatchesInPriceOrder() {
+        ProductFilter filter = new ProductFilter(150, 420, null, null);
+
+        assertEquals(expected(filter, ProductFilter.Sort.PRICE), productService.findProducts(filter));
+    }
+
+    @Test
+    public void findProducts_TitlePrefix_ReturnsMatchesInTitleOrder() {
+        ProductFilter filter = new ProductFilter(null, 1000, "Title 1", null);
+
+        List<Product> products = productService.findProducts(filter);
+
+        assertFalse(products.isEmpty());
+        assertEquals(expected(filter, ProductFilter.Sort.TITLE), products);
+    }
+
+    @Test
+    public void findProducts_OtherSort_SortsInMemory() {
+        ProductFilter byTitle = new ProductFilter(100, 300, null, ProductFilter.Sort.TITLE);
+        ProductFilter unbounded = new ProductFilter(1000, null, null, ProductFilter.Sort.PRICE);
+
+        assertEquals(expected(byTitle, ProductFilter.Sort.TITLE), productService.findProducts(byTitle));
+        assertEquals(expected(unbounded, ProductFilter.Sort.PRICE), productService.findProducts(unbounded));
+    }
+
+    @Test
+    public void forEachQueryPage_ViewMatchesJoin() {
+        QueryRequest query = QueryRequest.builder()
+                .indexName(ProductItems.PRICE_INDEX)
+                .keyConditionExpression("price_bucket = :bucket")
+                .expressionAttributeValues(Map.of(":bucket", AttributeValue.builder().n("3").build()))
+                .limit(4)
+                .build();
+
+        List<Product> fromJoin = new ArrayList<>();
+        join.forEachQueryPage(query, (items, stocks) ->
+                fromJoin.addAll(ProductItems.toProducts(items, ProductItems.toStockCounts(stocks))));
+        List<Product> fromView = new ArrayList<>();
+        view.forEachQueryPage(query, (items, stocks) ->
+                fromView.addAll(ProductItems.toProducts(items, ProductItems.toStockCounts(stocks))));
+
+        assertEquals(10, fromJoin.size());
+        assertEquals(fromJoin, fromView);
+    }
+
+    private static List<Product> expected(ProductFilter filter, ProductFilter.Sort sort) {
+        return created.stream().filter(filter::matches).sorted(sort.comparator()).toList();
+    }
+
+    private static Set<Product> readAll(ProductRepository repository) {
+        Set<Product> products = new HashSet<>();
+        repository.forEachItemPage((productItems, stockItems) -> {
+            for (Map<String, AttributeValue> productItem : productItems) {
+                products.add(ProductItems.toProduct(productItem, stockItems.get(productItem.get("id").s())));
+            }
+        });
+        return products;
+    }
+
+    private static void createTable(String table, String key, boolean productIndexes) {
+        CreateTableRequest.Builder request = CreateTableRequest.builder()
+                .tableName(table)
+                .keySchema(KeySchemaElement.builder().attributeName(key).keyType(KeyType.HASH).build())
+                .billingMode(BillingMode.PAY_PER_REQUEST);
+        List<AttributeDefinition> attributes = new ArrayList<>(List.of(attribute(key, ScalarAttributeType.S)));
+        if (productIndexes) {
+            attributes.addAll(List.of(
+                    attribute("price_bucket", ScalarAttributeType.N), attribute("price", ScalarAttributeType.N),
+                    attribute("title_key", ScalarAttributeType.S), attribute("title_lc", ScalarAttributeType.S)));
+            request.globalSecondaryIndexes(
+                    index(ProductItems.PRICE_INDEX, "price_bucket", "price"),
+                    index(ProductItems.TITLE_INDEX, "title_key", "title_lc"));
+        }
+        dynamoDb.createTable(request.attributeDefinitions(attributes).build());
+    }
+
+    private static AttributeDefinition attribute(String name, ScalarAttributeType type) {
+        return AttributeDefinition.builder().attributeName(name).attributeType(type).build();
+    }
+
+    private static GlobalSecondaryIndex index(String name, String partitionKey, String sortKey) {
+        return GlobalSecondaryIndex.builder()
+                .indexName(name)
+                .keySchema(
+                        KeySchemaElement.builder().attributeName(partitionKey).keyType(KeyType.HASH).build(),
+                        KeySchemaElement.builder().attributeName(sortKey).keyType(KeyType.RANGE).build())
+                .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+                .build();
+    }
+}
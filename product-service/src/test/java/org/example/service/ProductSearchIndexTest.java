@@ -0,0 +1,103 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductSearchIndexTest {
+
+    private static final Product RED_LAPTOP = new Product("1", "Red Laptop", "Fast laptop for work", 1200, 3);
+    private static final Product PHONE = new Product("2", "Blue phone", "A phone", 800, 5);
+    private static final Product BAG = new Product("3", "Laptop bag", "Bag for a laptop, red", 50, 7);
+
+    @Test
+    public void tokenize_SplitsOnNonAlphanumericsAndLowerCases() {
+        assertEquals(List.of("café", "42x", "usb", "c", "ok"), ProductSearchIndex.tokenize("Café 42x, USB-C 😀ok"));
+        assertEquals(List.of(), ProductSearchIndex.tokenize(" -- "));
+    }
+
+    @Test
+    public void search_RanksTitleMatchesAndRareTermsFirst() {
+        ProductSearchIndex index = index(RED_LAPTOP, PHONE, BAG);
+
+        assertEquals(List.of(RED_LAPTOP, BAG), products(index.search("laptop", 10)));
+        // "bag" is in one product only, so it outweighs "red"
+        assertEquals(List.of(BAG, RED_LAPTOP), products(index.search("RED bag", 10)));
+        assertEquals(List.of(RED_LAPTOP), products(index.search("laptop", 1)));
+        assertEquals(List.of(), index.search("tablet", 10));
+        assertEquals(List.of(), index.search("!", 10));
+    }
+
+    @Test
+    public void add_SameId_ReplacesProduct() {
+        ProductSearchIndex index = index(RED_LAPTOP, PHONE, BAG);
+        Product tablet = new Product("1", "Green tablet", "", 300, 1);
+
+        index.add(tablet);
+
+        assertEquals(3, index.size());
+        assertEquals(List.of(BAG), products(index.search("laptop", 10)));
+        assertEquals(List.of(tablet), products(index.search("tablet", 10)));
+    }
+
+    @Test
+    public void updateCount_ChangesReturnedProductOnly() {
+        ProductSearchIndex index = index(RED_LAPTOP, PHONE, BAG);
+
+        index.updateCount("2", 0);
+        index.updateCount("missing", 1);
+
+        assertEquals(List.of(new Product("2", "Blue phone", "A phone", 800, 0)), products(index.search("phone", 10)));
+    }
+
+    @Test
+    public void search_CommonTerm_WalksAllScores() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            products.add(new Product(String.valueOf(i), "common " + (i % 10 == 0 ? "rare" : "item"), "", i, 0));
+        }
+        ProductSearchIndex index = new ProductSearchIndex(16);
+        index.addAll(products);
+        index.trimToSize();
+
+        List<ProductSearchIndex.Hit> hits = index.search("common rare", 5);
+
+        assertEquals(List.of(products.get(0), products.get(10), products.get(20), products.get(30), products.get(40)),
+                products(hits));
+        assertTrue(hits.get(0).score() > index.search("common", 1).get(0).score());
+    }
+
+    @Test
+    public void productSearch_BuildsOnFirstSearchAndAppliesWrites() {
+        List<Product> catalog = new ArrayList<>(List.of(RED_LAPTOP, PHONE));
+        AtomicInteger builds = new AtomicInteger();
+        // refresh interval 0: built once, on the first search
+        ProductSearch search = new ProductSearch(pageConsumer -> {
+            builds.incrementAndGet();
+            pageConsumer.accept(List.copyOf(catalog));
+        }, Runnable::run, 0);
+
+        assertEquals(List.of(RED_LAPTOP), products(search.search("laptop", 10)));
+        search.onProductWritten(BAG);
+        search.onStockWritten("1", 9);
+
+        assertEquals(List.of(new Product("1", "Red Laptop", "Fast laptop for work", 1200, 9), BAG),
+                products(search.search("laptop", 10)));
+        assertEquals(1, builds.get());
+    }
+
+    private static ProductSearchIndex index(Product... products) {
+        ProductSearchIndex index = new ProductSearchIndex(products.length);
+        index.addAll(List.of(products));
+        return index;
+    }
+
+    private static List<Product> products(List<ProductSearchIndex.Hit> hits) {
+        return hits.stream().map(ProductSearchIndex.Hit::product).toList();
+    }
+}
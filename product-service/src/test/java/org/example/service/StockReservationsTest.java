@@ -0,0 +1,215 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Races {@link #CALLERS} reservations of one product, more than it has in stock, and checks that
+ * none is granted beyond the stock. Runs against DynamoDB Local, see {@link DynamoDbLocal}.
+ */
+@EnabledIfEnvironmentVariable(named = "DYNAMODB_LOCAL_ENDPOINT", matches = ".+")
+public class StockReservationsTest {
+
+    private static final String SUFFIX = "-" + UUID.randomUUID();
+    private static final String PRODUCTS = "products" + SUFFIX;
+    private static final String STOCKS = "stocks" + SUFFIX;
+    private static final String VIEW = "product_view" + SUFFIX;
+    private static final int CALLERS = 1000;
+
+    private static DynamoDbClient dynamoDb;
+    private static ExecutorService executor;
+
+    @BeforeAll
+    public static void setUp() {
+        dynamoDb = DynamoDbLocal.client();
+        executor = Executors.newFixedThreadPool(CALLERS);
+
+        DynamoDbLocal.createTable(dynamoDb, PRODUCTS, "id");
+        DynamoDbLocal.createTable(dynamoDb, STOCKS, "product_id");
+        DynamoDbLocal.createTable(dynamoDb, VIEW, "id");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (dynamoDb != null) {
+            for (String table : List.of(PRODUCTS, STOCKS, VIEW)) {
+                dynamoDb.deleteTable(DeleteTableRequest.builder().tableName(table).build());
+            }
+            dynamoDb.close();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void reserve_ConcurrentCallers_NeverOversell() throws Exception {
+        String productId = UUID.randomUUID().toString();
+        putCount(STOCKS, "product_id", productId, 300);
+        AtomicInteger writes = new AtomicInteger();
+        StockReservations reservations = new StockReservations(dynamoDb, STOCKS, null, (id, count) -> writes.incrementAndGet());
+
+        int granted = race(CALLERS, () -> reservations.reserve(productId, 1) ? 1 : 0);
+
+        assertEquals(300, granted);
+        assertEquals(0, count(STOCKS, "product_id", productId));
+        assertTrue(writes.get() < granted, "concurrent reservations were not combined");
+    }
+
+    @Test
+    public void reserve_WithView_KeepsViewCount() throws Exception {
+        String productId = UUID.randomUUID().toString();
+        putCount(STOCKS, "product_id", productId, 500);
+        putCount(VIEW, "id", productId, 500);
+        AtomicReference<Integer> reported = new AtomicReference<>();
+        StockReservations reservations = new StockReservations(dynamoDb, STOCKS, VIEW, (id, count) -> reported.set(count));
+        AtomicInteger caller = new AtomicInteger();
+
+        // 1 to 3 items each, about 2,000 asked for
+        int granted = race(CALLERS, () -> {
+            int quantity = 1 + caller.getAndIncrement() % 3;
+            return reservations.reserve(productId, quantity) ? quantity : 0;
+        });
+
+        assertTrue(granted <= 500, "granted " + granted);
+        assertEquals(500 - granted, count(STOCKS, "product_id", productId));
+        assertEquals(500 - granted, count(VIEW, "id", productId));
+        // writes of one product never overlap, so the last one reported the final count
+        assertEquals(500 - granted, reported.get());
+    }
+
+    @Test
+    public void reserveAndRelease_Interleaved_AddUp() throws Exception {
+        String productId = UUID.randomUUID().toString();
+        putCount(STOCKS, "product_id", productId, 100);
+        StockReservations reservations = new StockReservations(dynamoDb, STOCKS, null, (id, count) -> {
+        });
+        AtomicInteger released = new AtomicInteger();
+        AtomicInteger caller = new AtomicInteger();
+
+        int reserved = race(CALLERS, () -> {
+            if (caller.incrementAndGet() % 2 == 0) {
+                reservations.release(productId, 1);
+                released.incrementAndGet();
+                return 0;
+            }
+            return reservations.reserve(productId, 1) ? 1 : 0;
+        });
+
+        assertEquals(100 - reserved + released.get(), count(STOCKS, "product_id", productId));
+    }
+
+    @Test
+    public void reserve_ViewItemWithoutCount_UpdatesStockOnly() {
+        String productId = UUID.randomUUID().toString();
+        putCount(STOCKS, "product_id", productId, 5);
+        dynamoDb.putItem(PutItemRequest.builder()
+                .tableName(VIEW)
+                .item(Map.of("id", AttributeValue.builder().s(productId).build()))
+                .build());
+        StockReservations reservations = new StockReservations(dynamoDb, STOCKS, VIEW, (id, count) -> {
+        });
+
+        assertTrue(reservations.reserve(productId, 2));
+
+        assertEquals(3, count(STOCKS, "product_id", productId));
+        InsufficientStockException e = assertThrows(InsufficientStockException.class,
+                () -> reservations.reserve(productId, 4));
+        assertEquals(3, e.getAvailable());
+    }
+
+    @Test
+    public void reserveAndRelease_MissingStock_ReturnFalse() {
+        StockReservations reservations = new StockReservations(dynamoDb, STOCKS, VIEW, (id, count) -> {
+        });
+
+        assertFalse(reservations.reserve("missing", 1));
+        assertFalse(reservations.release("missing", 1));
+    }
+
+    @Test
+    public void reserveAndRelease_ThroughProductService_UpdateSearchCounts() {
+        ProductService productService = new ProductService(dynamoDb, null, PRODUCTS, STOCKS, null);
+        Product lamp = productService.createProduct("Reservable lamp", "A desk lamp", 30, 10);
+        assertEquals(10, searchCount(productService, lamp.id()));
+
+        assertTrue(productService.reserveStock(lamp.id(), 3));
+        assertEquals(7, searchCount(productService, lamp.id()));
+        assertTrue(productService.releaseStock(lamp.id(), 1));
+        assertEquals(8, searchCount(productService, lamp.id()));
+    }
+
+    private static int searchCount(ProductService productService, String productId) {
+        return productService.searchProducts("reservable lamp", 10).stream()
+                .filter(product -> product.id().equals(productId))
+                .findFirst()
+                .orElseThrow()
+                .count();
+    }
+
+    /**
+     * Starts {@code callers} calls of {@code reservation} at once and sums the quantities they
+     * report; calls failing with {@link InsufficientStockException} count as zero.
+     */
+    private static int race(int callers, Callable<Integer> reservation) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>(callers);
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    return reservation.call();
+                } catch (InsufficientStockException e) {
+                    return 0;
+                }
+            }));
+        }
+        start.countDown();
+
+        int granted = 0;
+        for (Future<Integer> result : results) {
+            try {
+                granted += result.get();
+            } catch (ExecutionException e) {
+                fail(e.getCause());
+            }
+        }
+        return granted;
+    }
+
+    private static void putCount(String table, String key, String productId, int count) {
+        dynamoDb.putItem(PutItemRequest.builder()
+                .tableName(table)
+                .item(Map.of(
+                        key, AttributeValue.builder().s(productId).build(),
+                        "count", AttributeValue.builder().n(String.valueOf(count)).build()))
+                .build());
+    }
+
+    private static int count(String table, String key, String productId) {
+        Map<String, AttributeValue> item = dynamoDb.getItem(GetItemRequest.builder()
+                .tableName(table)
+                .key(Map.of(key, AttributeValue.builder().s(productId).build()))
+                .consistentRead(true)
+                .build()).item();
+        return Integer.parseInt(item.get("count").n());
+    }
+}
@@ -0,0 +1,163 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StockWriteBehindTest {
+
+    private static final long NEVER = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    public void add_ConcurrentWithFlushes_WritesEveryChangeOnce() throws Exception {
+        Map<String, AtomicLong> written = new ConcurrentHashMap<>();
+        StockWriteBehind writeBehind = new StockWriteBehind((id, delta) -> {
+            written.computeIfAbsent(id, key -> new AtomicLong()).addAndGet(delta);
+            return true;
+        }, Runnable::run, NEVER, Integer.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicBoolean adding = new AtomicBoolean(true);
+
+        try {
+            Future<?> flusher = executor.submit(() -> {
+                while (adding.get()) {
+                    writeBehind.flush();
+                }
+            });
+            List<Future<?>> adders = new ArrayList<>();
+            for (int thread = 0; thread < 6; thread++) {
+                adders.add(executor.submit(() -> {
+                    for (int i = 0; i < 100_000; i++) {
+                        writeBehind.add("product-" + (i % 3), 1 + i % 2);
+                    }
+                }));
+            }
+            for (Future<?> adder : adders) {
+                adder.get();
+            }
+            adding.set(false);
+            flusher.get();
+            writeBehind.close();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // per thread, product-0 gets 33,334 changes and the others 33,333, alternating 1 and 2 items
+        assertEquals(6L * (16_667 + 2 * 16_667), written.get("product-0").get());
+        assertEquals(6L * (2 * 16_667 + 16_666), written.get("product-1").get());
+        assertEquals(6L * (16_667 + 2 * 16_666), written.get("product-2").get());
+    }
+
+    @Test
+    public void add_MaxPendingProducts_FlushesEarly() throws Exception {
+        CountDownLatch writes = new CountDownLatch(3);
+        StockWriteBehind writeBehind = new StockWriteBehind((id, delta) -> {
+            writes.countDown();
+            return true;
+        }, Runnable::run, NEVER, 3);
+
+        writeBehind.add("1", 1);
+        writeBehind.add("1", 1);
+        writeBehind.add("2", 1);
+        assertEquals(2, writeBehind.getStats().pendingProducts());
+        assertEquals(3, writeBehind.getStats().pendingChanges());
+        writeBehind.add("3", 1);
+
+        assertTrue(writes.await(5, TimeUnit.SECONDS));
+        writeBehind.close();
+        assertEquals(1, writeBehind.getStats().flushes());
+        assertEquals(3, writeBehind.getStats().flushedProducts());
+    }
+
+    @Test
+    public void flush_FailedWrite_IsRetriedByNextFlush() {
+        AtomicInteger attempts = new AtomicInteger();
+        List<Integer> written = new ArrayList<>();
+        StockWriteBehind writeBehind = new StockWriteBehind((id, delta) -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new RuntimeException("throttled");
+            }
+            written.add(delta);
+            return true;
+        }, Runnable::run, NEVER, Integer.MAX_VALUE);
+
+        writeBehind.add("1", 2);
+        writeBehind.flush();
+        assertEquals(1, writeBehind.getStats().failedWrites());
+        assertEquals(1, writeBehind.getStats().pendingProducts());
+        writeBehind.add("1", 3);
+        writeBehind.close();
+
+        assertEquals(List.of(5), written);
+    }
+
+    @Test
+    public void flush_DeltaBeyondIntRange_WrittenInIntSizedSteps() {
+        AtomicInteger attempts = new AtomicInteger();
+        List<Integer> written = new ArrayList<>();
+        StockWriteBehind writeBehind = new StockWriteBehind((id, delta) -> {
+            if (attempts.incrementAndGet() == 2) {
+                throw new RuntimeException("throttled");
+            }
+            written.add(delta);
+            return true;
+        }, Runnable::run, NEVER, Integer.MAX_VALUE);
+
+        writeBehind.add("1", Integer.MAX_VALUE);
+        writeBehind.add("1", Integer.MAX_VALUE);
+        writeBehind.add("1", 2);
+        writeBehind.flush();
+        assertEquals(List.of(Integer.MAX_VALUE), written);
+        assertEquals(1, writeBehind.getStats().failedWrites());
+        assertEquals(1, writeBehind.getStats().pendingProducts());
+        writeBehind.close();
+
+        assertEquals(List.of(Integer.MAX_VALUE, Integer.MAX_VALUE, 2), written);
+    }
+
+    @Test
+    public void flush_MissingStock_DropsDelta() {
+        AtomicInteger attempts = new AtomicInteger();
+        StockWriteBehind writeBehind = new StockWriteBehind((id, delta) -> {
+            attempts.incrementAndGet();
+            return false;
+        }, Runnable::run, NEVER, Integer.MAX_VALUE);
+
+        writeBehind.add("missing", 1);
+        writeBehind.flush();
+        writeBehind.flush();
+
+        assertEquals(1, attempts.get());
+        assertEquals(1, writeBehind.getStats().droppedProducts());
+        assertEquals(0, writeBehind.getStats().pendingProducts());
+        writeBehind.close();
+    }
+
+    @Test
+    public void flush_NetZeroDelta_WritesNothing() {
+        AtomicInteger attempts = new AtomicInteger();
+        StockWriteBehind writeBehind = new StockWriteBehind((id, delta) -> {
+            attempts.incrementAndGet();
+            return true;
+        }, Runnable::run, NEVER, Integer.MAX_VALUE);
+
+        writeBehind.add("1", 4);
+        writeBehind.add("1", -4);
+        writeBehind.close();
+
+        assertEquals(0, attempts.get());
+    }
+}